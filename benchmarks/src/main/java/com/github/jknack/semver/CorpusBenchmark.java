@@ -0,0 +1,75 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.semver;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parse the whole version corpus: the expression fixture plus the jquery and bootstrap tags.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CorpusBenchmark {
+
+  private List<String> corpus;
+
+  @Setup
+  public void setup() {
+    corpus = Fixtures.load("expressions");
+    corpus.addAll(Fixtures.tags("jquery"));
+    corpus.addAll(Fixtures.tags("bootstrap"));
+  }
+
+  @Benchmark
+  public void create(final Blackhole blackhole) {
+    for (String version : corpus) {
+      blackhole.consume(Semver.create(version));
+    }
+  }
+
+  @Benchmark
+  public void handwritten(final Blackhole blackhole) {
+    for (String version : corpus) {
+      blackhole.consume(RecursiveDescentParser.parse(version));
+    }
+  }
+
+  @Benchmark
+  public void parboiled(final Blackhole blackhole) {
+    for (String version : corpus) {
+      blackhole.consume(ExpressionParser.parse(version));
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.semver;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parse one expression of each grammar form, with and without the expression cache.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreateBenchmark {
+
+  /**
+   * One expression per grammar form.
+   */
+  @Param({"1.8.3", "v2.2.2", "0.1.2-7-beta", "=1.8.3", ">=1.0.2", "~1.2.3", "1.2.x", "*",
+      "latest", "1.0.0 - 2.9999.9999", ">=1.0.2 <2.1.2", "1.3.4 || 1.3.5",
+      "https://raw.github.com/douglascrockford/JSON-js/master/json2.js" })
+  public String expression;
+
+  @Benchmark
+  public Semver create() {
+    return Semver.create(expression);
+  }
+
+  @Benchmark
+  public Semver handwritten() {
+    return RecursiveDescentParser.parse(expression);
+  }
+
+  @Benchmark
+  public Semver parboiled() {
+    return ExpressionParser.parse(expression);
+  }
+}
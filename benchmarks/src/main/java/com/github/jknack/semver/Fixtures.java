@@ -0,0 +1,91 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.semver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Benchmark fixtures: real tag lists and a version expression corpus.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+final class Fixtures {
+
+  /**
+   * Not allowed.
+   */
+  private Fixtures() {
+  }
+
+  /**
+   * Load a fixture, one entry per line.
+   *
+   * @param name The fixture's name.
+   * @return The fixture entries.
+   */
+  static List<String> load(final String name) {
+    InputStream input = Fixtures.class.getResourceAsStream("/fixtures/" + name + ".txt");
+    if (input == null) {
+      throw new IllegalArgumentException("Fixture not found: " + name);
+    }
+    try {
+      List<String> lines = new ArrayList<String>();
+      for (String line : IOUtils.readLines(input, "UTF-8")) {
+        if (line.length() > 0) {
+          lines.add(line);
+        }
+      }
+      return lines;
+    } catch (IOException ex) {
+      throw new IllegalStateException("Can't read fixture: " + name, ex);
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  /**
+   * Load a tag list. Besides the fixture files, <code>large</code> produces a synthetic list
+   * of 5000 shuffled versions.
+   *
+   * @param name The tag list's name: <code>jquery</code>, <code>bootstrap</code> or
+   *        <code>large</code>.
+   * @return The tags in random order.
+   */
+  static List<String> tags(final String name) {
+    List<String> tags;
+    if ("large".equals(name)) {
+      tags = new ArrayList<String>();
+      for (int major = 0; major < 10; major++) {
+        for (int minor = 0; minor < 25; minor++) {
+          for (int incremental = 0; incremental < 20; incremental++) {
+            tags.add(major + "." + minor + "." + incremental);
+          }
+        }
+      }
+    } else {
+      tags = load(name + "-tags");
+    }
+    Collections.shuffle(tags, new Random(name.hashCode()));
+    return tags;
+  }
+}
@@ -0,0 +1,82 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.semver;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Match a candidate against version, {@link Range}, {@link AndExpression} and
+ * {@link OrExpression} expressions.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchBenchmark {
+
+  @Param({"1.8.3", ">=1.0.2", "~1.8.0", "1.8.x", "1.0.0 - 2.9999.9999", ">=1.0.2 <2.1.2",
+      "1.3.4 || 1.8.3", "<1.0.0 || >=2.3.1 <2.4.5 || >=2.5.2 <3.0.0" })
+  public String expression;
+
+  @Param({"1.8.3", "2.5.5" })
+  public String candidate;
+
+  private Semver expr;
+
+  private Semver version;
+
+  @Setup
+  public void setup() {
+    expr = Semver.create(expression);
+    version = Semver.create(candidate);
+  }
+
+  @Benchmark
+  public boolean matchesString() {
+    return expr.matches(candidate);
+  }
+
+  @Benchmark
+  public boolean matchesSemver() {
+    return expr.matches(version);
+  }
+
+  @Benchmark
+  public int compareTo() {
+    return expr.compareTo(version);
+  }
+
+  @Benchmark
+  public boolean versionSet() {
+    return expr.toVersionSet().contains(version);
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.semver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sort tag lists and pick the highest match, like a resolver does.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortBenchmark {
+
+  @Param({"jquery", "bootstrap", "large" })
+  public String tags;
+
+  @Param({"1.x", ">=2.0.0 <3.0.0" })
+  public String expression;
+
+  private List<String> candidates;
+
+  @Setup
+  public void setup() {
+    candidates = Fixtures.tags(tags);
+  }
+
+  @Benchmark
+  public List<String> sortDesc() {
+    List<String> sorted = new ArrayList<String>(candidates);
+    Collections.sort(sorted, Semver.DESC);
+    return sorted;
+  }
+
+  @Benchmark
+  public List<String> sortDescending() {
+    return Semver.sortDescending(candidates);
+  }
+
+  @Benchmark
+  public String linearScan() {
+    List<String> sorted = new ArrayList<String>(candidates);
+    Collections.sort(sorted, Semver.DESC);
+    Semver expr = Semver.create(expression);
+    for (String candidate : sorted) {
+      if (expr.matches(candidate)) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  @Benchmark
+  public String maxSatisfying() {
+    return Semver.maxSatisfying(Semver.create(expression), candidates);
+  }
+}
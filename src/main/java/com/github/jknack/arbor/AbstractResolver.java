@@ -14,13 +14,27 @@
  */
 package com.github.jknack.arbor;
 
+import static org.apache.commons.lang3.Validate.notNull;
+
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.concurrent.Callable;
 
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.jknack.arbor.io.ArtifactStore;
+import com.github.jknack.arbor.io.HttpTransport;
 import com.github.jknack.semver.Semver;
 
 public abstract class AbstractResolver<T> implements DependencyResolver {
@@ -41,14 +55,110 @@ public abstract class AbstractResolver<T> implements DependencyResolver {
     }
   }
 
+  /**
+   * The estimated size of a single file download.
+   */
+  protected static final long FILE_SIZE = 32 * 1024;
+
+  /**
+   * The estimated size of an archive download.
+   */
+  protected static final long ARCHIVE_SIZE = 256 * 1024;
+
   /**
    * The logging system.
    */
   protected final Logger logger = LoggerFactory.getLogger(getClass());
 
+  /**
+   * The HTTP transport.
+   */
+  private HttpTransport transport = HttpTransport.getDefault();
+
+  /**
+   * True if only the descriptor and the main file of a module are extracted.
+   */
+  private volatile boolean selectiveExtraction;
+
+  /**
+   * The artifact store or null.
+   */
+  private volatile ArtifactStore store;
+
+  /**
+   * Set the HTTP transport used by this resolver.
+   *
+   * @param transport The HTTP transport. Required.
+   */
+  public void setTransport(final HttpTransport transport) {
+    this.transport = notNull(transport, "The transport is required.");
+  }
+
+  /**
+   * The HTTP transport used by this resolver.
+   *
+   * @return The HTTP transport.
+   */
+  public HttpTransport getTransport() {
+    return transport;
+  }
+
+  /**
+   * Extract only the descriptor and the main file of a module, instead of the whole archive.
+   * Modules whose main file loads other files of the package won't work.
+   *
+   * @param selectiveExtraction True for extracting only the descriptor and the main file.
+   */
+  public void setSelectiveExtraction(final boolean selectiveExtraction) {
+    this.selectiveExtraction = selectiveExtraction;
+  }
+
+  /**
+   * True if only the descriptor and the main file of a module are extracted.
+   *
+   * @return True if only the descriptor and the main file of a module are extracted.
+   */
+  public boolean isSelectiveExtraction() {
+    return selectiveExtraction;
+  }
+
+  /**
+   * Set the artifact store for downloaded archives. Modules get links to the store's files
+   * instead of a new download and extraction per project.
+   *
+   * @param store The artifact store or null for no store.
+   */
+  public void setStore(final ArtifactStore store) {
+    this.store = store;
+  }
+
+  /**
+   * The artifact store for downloaded archives.
+   *
+   * @return The artifact store or null.
+   */
+  public ArtifactStore getStore() {
+    return store;
+  }
+
   @Override
   public final Module resolve(final DependencyContext context, final ModuleId moduleId)
       throws IOException {
+    Module existing = cached(context, moduleId);
+    if (existing != null) {
+      return existing;
+    }
+    return install(context, lookup(moduleId));
+  }
+
+  /**
+   * Find a module with a static revision in the context.
+   *
+   * @param context The dependency context.
+   * @param moduleId The module id.
+   * @return The cached module or null.
+   */
+  /* package */Module cached(final DependencyContext context, final ModuleId moduleId) {
     try {
       Semver version = Semver.create(moduleId.getRevision());
       if (version.isStatic()) {
@@ -62,41 +172,268 @@ public abstract class AbstractResolver<T> implements DependencyResolver {
       // it should a 'latest' or something invalid
       logger.trace("Can't parse: {}", moduleId.getRevision());
     }
-    boolean success = false;
+    return null;
+  }
+
+  /**
+   * The metadata phase: find out the revision of a module without downloading anything.
+   *
+   * @param moduleId The module id.
+   * @return The resolved revision.
+   * @throws IOException If the module can't be resolved.
+   */
+  /* package */ResolvedRevision<T> lookup(final ModuleId moduleId) throws IOException {
     logger.info("resolving {} using {}", moduleId, getName());
-    ResolvedRevision<T> revision = doResolve(moduleId);
-    File moduleHome = context.moduleHome(revision.moduleId);
+    return doResolve(moduleId);
+  }
+
+  /**
+   * The download phase: create a module from a revision found by {@link #lookup(ModuleId)}.
+   *
+   * @param context The dependency context.
+   * @param resolved A revision found by this resolver.
+   * @return The module.
+   * @throws IOException If the module can't be created.
+   */
+  @SuppressWarnings("unchecked")
+  /* package */Module install(final DependencyContext context, final ResolvedRevision<?> resolved)
+      throws IOException {
+    final ResolvedRevision<T> revision = (ResolvedRevision<T>) resolved;
+    Module existing = context.get(revision.moduleId);
+    if (existing != null) {
+      logger.info("{} resolved from cache", revision.moduleId);
+      return existing;
+    }
+    return context.resolve(revision.moduleId, new Callable<Module>() {
+      @Override
+      public Module call() throws IOException {
+        return newModule(context, revision);
+      }
+    });
+  }
+
+  /**
+   * Resolve the given dependencies using this resolver, in parallel if the context allows it.
+   *
+   * @param context The dependency context.
+   * @param dependencies The dependencies to resolve.
+   * @return The resolved modules, in the same order.
+   * @throws IOException If any of the dependencies can't be resolved.
+   */
+  protected List<Module> resolveAll(final DependencyContext context,
+      final Collection<ModuleId> dependencies) throws IOException {
+    List<Callable<Module>> tasks = new ArrayList<Callable<Module>>(dependencies.size());
+    for (final ModuleId dependency : dependencies) {
+      tasks.add(new Callable<Module>() {
+        @Override
+        public Module call() throws IOException {
+          return resolve(context, dependency);
+        }
+      });
+    }
+    return context.invokeAll(tasks);
+  }
+
+  /**
+   * Convert name/revision pairs to module ids.
+   *
+   * @param dependencies The dependencies, as name/revision pairs.
+   * @return The module ids.
+   */
+  protected static List<ModuleId> moduleIds(final Map<String, String> dependencies) {
+    List<ModuleId> moduleIds = new ArrayList<ModuleId>(dependencies.size());
+    for (Entry<String, String> entry : dependencies.entrySet()) {
+      moduleIds.add(new ModuleId(entry.getKey(), entry.getValue()));
+    }
+    return moduleIds;
+  }
+
+  private Module newModule(final DependencyContext context, final ResolvedRevision<T> revision)
+      throws IOException {
+    Module existing = context.get(revision.moduleId);
+    if (existing != null) {
+      logger.info("{} resolved from cache", revision.moduleId);
+      return existing;
+    }
+    ModuleLock lock = ModuleLock.acquire(context, revision.moduleId);
+    boolean success = false;
     try {
-      Module existing = context.get(revision.moduleId);
+      // another process might have installed it while we were waiting
+      existing = context.get(revision.moduleId);
       if (existing != null) {
         logger.info("{} resolved from cache", revision.moduleId);
         success = true;
         return existing;
       }
-      logger.info("downloading {} using {}", revision.moduleId, getName());
-      Module resolved = newModule(context, revision.descritpor, revision.moduleId);
-      resolved.save();
+      Module resolved = download(context, revision);
+      // mark as resolved in this context only: a dependency cycle links back to it instead of
+      // waiting for the lock
+      context.put(revision.moduleId, resolved);
+      for (Module dependency : resolveAll(context, dependencies(revision))) {
+        resolved.add(dependency);
+      }
+      // other processes see it from now on, with its dependencies
+      resolved.save(context.getIndex());
       success = true;
       return resolved;
     } finally {
-      if (!success) {
-        logger.info("{} fail to resolve: {}", getName(), revision.moduleId);
-        // clean up context
-        context.put(revision.moduleId, null);
-        logger.debug("Cleaning up: {} at {}", revision.moduleId, moduleHome);
-        File moduleRoot = moduleHome.getParentFile();
-        if (moduleRoot.listFiles().length == 1) {
-          FileUtils.deleteDirectory(moduleRoot);
-        } else {
-          FileUtils.deleteDirectory(moduleHome);
+      try {
+        if (!success) {
+          cleanup(context, revision.moduleId);
         }
+      } finally {
+        lock.release();
+      }
+    }
+  }
+
+  /**
+   * The download phase of a module: fetch its files, without looking at its dependencies. Files
+   * are written into a staging directory next to the module home and renamed into place once the
+   * download is complete, so nobody ever sees a partial module. Resolvers that install a module
+   * somewhere else, like {@link UrlResolver} for plain URLs, stage their own files. The caller
+   * must hold the module's lock, see {@link ModuleLock}.
+   *
+   * @param context The dependency context.
+   * @param resolved A revision found by this resolver.
+   * @return The module, not saved yet.
+   * @throws IOException If the module can't be downloaded.
+   */
+  @SuppressWarnings("unchecked")
+  /* package */Module download(final DependencyContext context,
+      final ResolvedRevision<?> resolved) throws IOException {
+    ResolvedRevision<T> revision = (ResolvedRevision<T>) resolved;
+    logger.info("downloading {} using {}", revision.moduleId, getName());
+    File moduleHome = context.moduleHome(revision.moduleId);
+    File moduleRoot = moduleHome.getParentFile();
+    String prefix = "." + moduleHome.getName() + ".staging-";
+    // left behind by a crashed process, nobody else stages this module while we hold the lock
+    File[] stale = moduleRoot.listFiles();
+    if (stale != null) {
+      for (File file : stale) {
+        if (file.getName().startsWith(prefix)) {
+          FileUtils.deleteDirectory(file);
+        }
+      }
+    }
+    File staging = new File(moduleRoot, prefix + UUID.randomUUID());
+    staging.mkdirs();
+    try {
+      Module module = download(new StagingContext(context, revision.moduleId, staging),
+          revision.descritpor, revision.moduleId);
+      if (staging.equals(module.getHome())) {
+        if (moduleHome.exists()) {
+          // a module that was never saved
+          File trash = new File(moduleRoot, prefix + UUID.randomUUID());
+          Files.move(moduleHome.toPath(), trash.toPath(), StandardCopyOption.ATOMIC_MOVE);
+          FileUtils.deleteDirectory(trash);
+        }
+        Files.move(staging.toPath(), moduleHome.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        module = new Module(revision.moduleId, moduleHome, module.getMain());
+      }
+      module.setOrigin(getName(), source(revision.descritpor, revision.moduleId));
+      return module;
+    } finally {
+      if (staging.exists()) {
+        FileUtils.deleteDirectory(staging);
       }
     }
   }
 
+  /**
+   * The dependencies of a revision found by this resolver.
+   *
+   * @param resolved A revision found by this resolver.
+   * @return The dependencies of the revision.
+   * @throws IOException If the dependencies can't be found.
+   */
+  @SuppressWarnings("unchecked")
+  /* package */List<ModuleId> dependencies(final ResolvedRevision<?> resolved)
+      throws IOException {
+    ResolvedRevision<T> revision = (ResolvedRevision<T>) resolved;
+    return dependencies(revision.descritpor, revision.moduleId);
+  }
+
+  /**
+   * The estimated download size of a revision found by this resolver.
+   *
+   * @param resolved A revision found by this resolver.
+   * @return The estimated download size in bytes.
+   */
+  @SuppressWarnings("unchecked")
+  /* package */long estimateSize(final ResolvedRevision<?> resolved) {
+    ResolvedRevision<T> revision = (ResolvedRevision<T>) resolved;
+    return estimateSize(revision.descritpor, revision.moduleId);
+  }
+
+  /**
+   * Remove a module that couldn't be installed. The module was never saved, so nobody else uses
+   * its home. The caller must hold the module's lock.
+   *
+   * @param context The dependency context.
+   * @param moduleId The module id.
+   * @throws IOException If the module home can't be deleted.
+   */
+  /* package */void cleanup(final DependencyContext context, final ModuleId moduleId)
+      throws IOException {
+    logger.info("{} fail to resolve: {}", getName(), moduleId);
+    // clean up context
+    context.put(moduleId, null);
+    File moduleHome = context.moduleHome(moduleId);
+    logger.debug("Cleaning up: {} at {}", moduleId, moduleHome);
+    FileUtils.deleteDirectory(moduleHome);
+    // only if it was the last version (and nobody else is staging one)
+    moduleHome.getParentFile().delete();
+  }
+
+  /**
+   * Where a module comes from, recorded in the lock file.
+   *
+   * @param descriptor The module descriptor.
+   * @param moduleId The module id.
+   * @return Where a module comes from.
+   */
+  protected String source(final T descriptor, final ModuleId moduleId) {
+    return String.valueOf(descriptor);
+  }
+
   protected abstract ResolvedRevision<T> doResolve(ModuleId moduleId) throws IOException;
 
-  protected abstract Module newModule(final DependencyContext context, T descriptor,
+  /**
+   * The dependencies of a module, from its metadata. Nothing is downloaded.
+   *
+   * @param descriptor The module descriptor.
+   * @param moduleId The module id.
+   * @return The dependencies of the module.
+   * @throws IOException If the dependencies can't be found.
+   */
+  protected List<ModuleId> dependencies(final T descriptor, final ModuleId moduleId)
+      throws IOException {
+    return Collections.emptyList();
+  }
+
+  /**
+   * A rough estimate of the download size of a module, used for downloading large modules first.
+   *
+   * @param descriptor The module descriptor.
+   * @param moduleId The module id.
+   * @return The estimated download size in bytes.
+   */
+  protected long estimateSize(final T descriptor, final ModuleId moduleId) {
+    return FILE_SIZE;
+  }
+
+  /**
+   * Download a module. Dependencies are resolved by the caller, see
+   * {@link #dependencies(Object, ModuleId)}.
+   *
+   * @param context The dependency context.
+   * @param descriptor The module descriptor.
+   * @param moduleId The module id.
+   * @return The module.
+   * @throws IOException If the module can't be downloaded.
+   */
+  protected abstract Module download(final DependencyContext context, T descriptor,
       final ModuleId moduleId) throws IOException;
 
   @Override
@@ -15,24 +15,32 @@
 package com.github.jknack.arbor;
 
 import static org.apache.commons.io.FilenameUtils.getName;
+import static org.apache.commons.lang3.Validate.isTrue;
 import static org.apache.commons.lang3.Validate.notNull;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.filefilter.NameFileFilter;
-import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.jknack.arbor.AbstractResolver.ResolvedRevision;
+import com.github.jknack.arbor.LockFile.LockedModule;
+import com.github.jknack.arbor.ResolutionPlan.Step;
 import com.github.jknack.arbor.bower.BowerResolver;
+import com.github.jknack.arbor.io.ArtifactStore;
+import com.github.jknack.arbor.io.Digests;
+import com.github.jknack.arbor.io.HttpCache;
+import com.github.jknack.arbor.io.HttpTransport;
 import com.github.jknack.arbor.jam.JamResolver;
 import com.github.jknack.arbor.volo.VoloResolver;
 
@@ -55,6 +63,12 @@ public class Arbor {
 
   private final List<DependencyResolver> resolvers = new ArrayList<DependencyResolver>();
 
+  private Executor executor;
+
+  private boolean racing;
+
+  private int downloads = 4;
+
   public Arbor(final File baseDir) {
     this.baseDir = notNull(baseDir, "The baseDir is required.");
     setResolvers("url", "jam", "bower", "volo");
@@ -67,101 +81,419 @@ public class Arbor {
     }
   }
 
+  /**
+   * Set the executor used for resolving sibling dependencies in parallel. Resolution is serial if
+   * the executor is null (the default).
+   *
+   * @param executor The executor or null for serial resolution.
+   */
+  public void setExecutor(final Executor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Query all the resolvers at once instead of one after another. The module is installed from
+   * the highest priority resolver that finds it. It requires an executor, see
+   * {@link #setExecutor(Executor)}.
+   *
+   * @param racing True for querying all the resolvers at once.
+   */
+  public void setRacing(final boolean racing) {
+    this.racing = racing;
+  }
+
+  /**
+   * Set the HTTP transport of the resolvers. Resolvers are shared, so the transport applies to any
+   * other {@link Arbor} using them too.
+   *
+   * @param transport The HTTP transport. Required.
+   */
+  public void setTransport(final HttpTransport transport) {
+    notNull(transport, "The transport is required.");
+    for (DependencyResolver resolver : resolvers) {
+      if (resolver instanceof AbstractResolver) {
+        ((AbstractResolver<?>) resolver).setTransport(transport);
+      }
+    }
+  }
+
+  /**
+   * Keep registry metadata (package documents, GitHub searches and tags, the Bower package list)
+   * on disk, so it's revalidated with a conditional request and reused across runs, see
+   * {@link HttpCache}. There is no disk cache by default, unless the <code>arbor.cache</code>
+   * system property is set. Resolvers are shared, so the cache applies to any other
+   * {@link Arbor} using them too.
+   *
+   * @param dir The cache directory, like <code>~/.arbor/cache</code>, or null for no cache.
+   */
+  public void setCache(final File dir) {
+    HttpCache cache = dir == null ? null : new HttpCache(dir);
+    for (DependencyResolver resolver : resolvers) {
+      if (resolver instanceof AbstractResolver) {
+        ((AbstractResolver<?>) resolver).getTransport().setCache(cache);
+      }
+    }
+  }
+
+  /**
+   * Set the artifact store of the resolvers, see {@link AbstractResolver#setStore(ArtifactStore)}.
+   * Resolvers are shared, so the store applies to any other {@link Arbor} using them too.
+   *
+   * @param store The artifact store, like {@link ArtifactStore#getDefault()}, or null for no
+   *        store.
+   */
+  public void setStore(final ArtifactStore store) {
+    for (DependencyResolver resolver : resolvers) {
+      if (resolver instanceof AbstractResolver) {
+        ((AbstractResolver<?>) resolver).setStore(store);
+      }
+    }
+  }
+
+  /**
+   * Extract only the descriptor and the main file of the modules, see
+   * {@link AbstractResolver#setSelectiveExtraction(boolean)}. Resolvers are shared, so the
+   * setting applies to any other {@link Arbor} using them too.
+   *
+   * @param selectiveExtraction True for extracting only the descriptor and the main file.
+   */
+  public void setSelectiveExtraction(final boolean selectiveExtraction) {
+    for (DependencyResolver resolver : resolvers) {
+      if (resolver instanceof AbstractResolver) {
+        ((AbstractResolver<?>) resolver).setSelectiveExtraction(selectiveExtraction);
+      }
+    }
+  }
+
+  /**
+   * Set the maximum number of concurrent downloads. Downloads run in parallel only if there is an
+   * executor, see {@link #setExecutor(Executor)}.
+   *
+   * @param downloads The maximum number of concurrent downloads.
+   */
+  public void setDownloads(final int downloads) {
+    isTrue(downloads > 0, "The downloads must be greater than zero.");
+    this.downloads = downloads;
+  }
+
+  /**
+   * Resolve the dependencies of a package.json. Resolution runs in two phases: the complete
+   * dependency graph is found first (see {@link #plan(File)}), then the missing modules are
+   * downloaded, largest first.
+   *
+   * @param packageJsonFile The package.json file.
+   * @return A module for the package.json.
+   * @throws IOException If a module can't be resolved.
+   */
   public Module resolve(final File packageJsonFile) throws IOException {
-    final Map<ModuleId, Module> registry = loadModules(baseDir);
-    DependencyContext context = newDependencyContext(baseDir, registry);
+    final DependencyContext context = newDependencyContext(baseDir);
     PackageJson packageJson = JsonParser.read(FileUtils.readFileToString(packageJsonFile),
         PackageJson.class);
     Module root = new Module(new ModuleId(packageJson.getName(), packageJson.getVersion()),
         packageJsonFile.getParentFile(), getName(packageJsonFile.getAbsolutePath()));
 
-    for (Entry<String, String> dependency : packageJson.getDependencies().entrySet()) {
-      ModuleId moduleId = new ModuleId(dependency.getKey(), dependency.getValue());
-      Module module = null;
-      for (DependencyResolver resolver : resolvers) {
-        try {
-          module = resolver.resolve(context, moduleId);
-          break;
-        } catch (UnresolvedDependencyException ex) {
-          logger.debug("{} fail to resolve: {}", resolver.getName(), moduleId);
-          logger.debug("  reason:", ex);
-        }
-      }
-      if (module == null) {
-        throw new UnresolvedDependencyException(moduleId);
+    File lockFile = new File(packageJsonFile.getParentFile(), LockFile.FILE_NAME);
+    String hash = LockFile.hash(packageJson.getDependencies());
+    LockFile lock = LockFile.read(lockFile);
+    if (lock != null && hash.equals(lock.getHash())) {
+      logger.debug("Using: {}", lockFile);
+      for (Module module : resolve(context, lock)) {
+        root.add(module);
       }
+      return root;
+    }
+
+    ResolutionPlan plan = plan(context,
+        AbstractResolver.moduleIds(packageJson.getDependencies()));
+    for (Module module : plan.install(context, downloads)) {
       root.add(module);
     }
+    new LockFile(hash, root).write(lockFile);
     return root;
   }
 
-  public Module resolve(final ModuleId moduleId) throws IOException {
-    final Map<ModuleId, Module> registry = loadModules(baseDir);
-    Module cached = registry.get(moduleId);
-    if (cached != null) {
-      logger.info("{} found in cache", moduleId);
-      return cached;
+  /**
+   * Install the modules of a lock file: registries are asked only for the modules missing in the
+   * base directory, using the locked revision and resolver.
+   *
+   * @param context The dependency context.
+   * @param lock The lock file.
+   * @return The locked package.json dependencies.
+   * @throws IOException If a module can't be installed.
+   */
+  private List<Module> resolve(final DependencyContext context, final LockFile lock)
+      throws IOException {
+    List<Callable<Module>> missing = new ArrayList<Callable<Module>>();
+    for (final LockedModule locked : lock.getModules()) {
+      File localFile = context.getIndex().find(locked.getId());
+      if (localFile == null || !localFile.exists()) {
+        missing.add(new Callable<Module>() {
+          @Override
+          public Module call() throws IOException {
+            return install(context, locked);
+          }
+        });
+      }
+    }
+    context.invokeAll(missing);
+
+    List<Module> dependencies = new ArrayList<Module>();
+    for (Entry<String, String> dependency : lock.getDependencies().entrySet()) {
+      ModuleId moduleId = new ModuleId(dependency.getKey(), dependency.getValue());
+      Module module = context.get(moduleId);
+      if (module == null) {
+        module = resolve(context, moduleId);
+      }
+      dependencies.add(module);
+    }
+    return dependencies;
+  }
+
+  /**
+   * Install a locked module, using the resolver that supplied it.
+   *
+   * @param context The dependency context.
+   * @param locked The locked module.
+   * @return The module.
+   * @throws IOException If the module can't be installed.
+   */
+  private Module install(final DependencyContext context, final LockedModule locked)
+      throws IOException {
+    ModuleId moduleId = locked.getId();
+    logger.info("{} is missing, fetching it from: {}", moduleId, locked.getSource());
+    DependencyResolver resolver = locked.getResolver() == null ? null
+        : ResolverRegistry.get(locked.getResolver());
+    Module module = resolver == null ? resolve(context, moduleId)
+        : resolver.resolve(context, moduleId);
+    if (locked.getIntegrity() != null
+        && !locked.getIntegrity().equals(Digests.sha256(module.getLocalFile()))) {
+      logger.warn("{} doesn't match the locked content from: {}", moduleId, locked.getSource());
+    }
+    return module;
+  }
+
+  /**
+   * Resolve a module depth-first: the module is downloaded before its dependencies are resolved.
+   *
+   * @param context The dependency context.
+   * @param moduleId The module id.
+   * @return The resolved module.
+   * @throws IOException If none of the resolvers finds the module.
+   */
+  private Module resolve(final DependencyContext context, final ModuleId moduleId)
+      throws IOException {
+    Step step = lookup(context, moduleId);
+    if (step.isInstalled()) {
+      return step.getModule();
+    }
+    return step.resolver().install(context, step.revision());
+  }
+
+  /**
+   * Create a plan for the given dependencies: only the metadata of the modules is fetched, nothing
+   * is downloaded. See {@link #resolve(File)} for installing a plan.
+   *
+   * @param packageJsonFile The package.json file.
+   * @return The plan.
+   * @throws IOException If a module can't be resolved.
+   */
+  public ResolutionPlan plan(final File packageJsonFile) throws IOException {
+    PackageJson packageJson = JsonParser.read(FileUtils.readFileToString(packageJsonFile),
+        PackageJson.class);
+    return plan(newDependencyContext(baseDir),
+        AbstractResolver.moduleIds(packageJson.getDependencies()));
+  }
+
+  /**
+   * Create a plan for the given dependencies.
+   *
+   * @param context The dependency context.
+   * @param dependencies The dependencies.
+   * @return The plan.
+   * @throws IOException If a module can't be resolved.
+   */
+  private ResolutionPlan plan(final DependencyContext context, final List<ModuleId> dependencies)
+      throws IOException {
+    ResolutionPlan plan = new ResolutionPlan();
+    plan.setRoots(plan(context, plan, dependencies, null));
+    return plan;
+  }
+
+  /**
+   * Add the given dependencies and their dependencies to the plan, in parallel if the context
+   * allows it.
+   *
+   * @param context The dependency context.
+   * @param plan The plan.
+   * @param dependencies The dependencies.
+   * @param resolver The resolver of the dependent module or null for the package.json
+   *        dependencies.
+   * @return The resolved ids of the dependencies, in the same order.
+   * @throws IOException If a module can't be resolved.
+   */
+  private List<ModuleId> plan(final DependencyContext context, final ResolutionPlan plan,
+      final List<ModuleId> dependencies, final AbstractResolver<?> resolver) throws IOException {
+    List<Callable<ModuleId>> tasks = new ArrayList<Callable<ModuleId>>(dependencies.size());
+    for (final ModuleId dependency : dependencies) {
+      tasks.add(new Callable<ModuleId>() {
+        @Override
+        public ModuleId call() throws IOException {
+          Step step = resolver == null ? lookup(context, dependency)
+              : lookup(context, dependency, resolver);
+          if (plan.add(step) && !step.isInstalled()) {
+            step.setRequires(plan(context, plan, step.resolver().dependencies(step.revision()),
+                step.resolver()));
+          }
+          return step.getModuleId();
+        }
+      });
+    }
+    return context.invokeAll(tasks);
+  }
+
+  /**
+   * Find a module using the resolver chain.
+   *
+   * @param context The dependency context.
+   * @param moduleId The module id.
+   * @return The plan step of the module.
+   * @throws IOException If none of the resolvers finds the module.
+   */
+  private Step lookup(final DependencyContext context, final ModuleId moduleId)
+      throws IOException {
+    if (racing) {
+      return race(context, moduleId);
     }
-    DependencyContext context = newDependencyContext(baseDir, registry);
     for (DependencyResolver resolver : resolvers) {
       try {
-        Module module = resolver.resolve(context, moduleId);
-        logger.info("  found it!!");
-        return module;
+        if (resolver instanceof AbstractResolver) {
+          return lookup(context, moduleId, (AbstractResolver<?>) resolver);
+        }
+        // can't split it in phases, resolve it now
+        return new Step(resolver.resolve(context, moduleId));
       } catch (UnresolvedDependencyException ex) {
-        logger.info("  not found");
+        logger.debug("{} fail to resolve: {}", resolver.getName(), moduleId);
+        logger.debug("  reason:", ex);
       }
     }
     throw new UnresolvedDependencyException(moduleId + " tried " + resolvers);
   }
 
-  private Map<ModuleId, Module> loadModules(final File baseDir) throws IOException {
-    Map<ModuleId, Module> modules = new HashMap<ModuleId, Module>();
-    Collection<File> files = FileUtils.listFiles(baseDir, new NameFileFilter("module.json"),
-        TrueFileFilter.INSTANCE);
-    for (File file : files) {
-      Module module = JsonParser.read(FileUtils.readFileToString(file), Module.class);
-      modules.put(module.getId(), module);
+  /**
+   * Find a module using the given resolver.
+   *
+   * @param context The dependency context.
+   * @param moduleId The module id.
+   * @param resolver The resolver.
+   * @return The plan step of the module.
+   * @throws IOException If the resolver doesn't find the module.
+   */
+  private Step lookup(final DependencyContext context, final ModuleId moduleId,
+      final AbstractResolver<?> resolver) throws IOException {
+    Module cached = resolver.cached(context, moduleId);
+    if (cached != null) {
+      return new Step(cached);
     }
-    return modules;
+    return step(context, resolver, resolver.lookup(moduleId));
   }
 
-  private static DependencyContext newDependencyContext(final File baseDir,
-      final Map<ModuleId, Module> registry) {
-    return new DependencyContext() {
-      @Override
-      public void put(final ModuleId moduleId, final Module module) {
-        registry.put(moduleId, module);
-      }
+  /**
+   * Create a plan step for a resolved revision.
+   *
+   * @param context The dependency context.
+   * @param resolver The resolver that found the revision.
+   * @param revision The resolved revision.
+   * @return The plan step of the module.
+   */
+  private static Step step(final DependencyContext context, final AbstractResolver<?> resolver,
+      final ResolvedRevision<?> revision) {
+    Module existing = context.get(revision.moduleId);
+    return existing == null ? new Step(resolver, revision) : new Step(existing);
+  }
 
-      @Override
-      public File moduleRoot(final ModuleId moduleId) {
-        File moduleRoot = new File(baseDir, moduleId.getName());
-        if (!moduleRoot.exists()) {
-          moduleRoot.mkdirs();
+  /**
+   * Run the metadata phase of all the resolvers concurrently and pick the first resolver (in
+   * priority order) that finds the module. Pending lookups of lower priority resolvers are
+   * cancelled as soon as there is a winner.
+   *
+   * @param context The dependency context.
+   * @param moduleId The module id.
+   * @return The plan step of the module.
+   * @throws IOException If none of the resolvers finds the module.
+   */
+  private Step race(final DependencyContext context, final ModuleId moduleId)
+      throws IOException {
+    // check the caches before submitting anything, so a hit doesn't leave lookups behind
+    for (DependencyResolver resolver : resolvers) {
+      if (resolver instanceof AbstractResolver) {
+        Module cached = ((AbstractResolver<?>) resolver).cached(context, moduleId);
+        if (cached != null) {
+          return new Step(cached);
         }
-        return moduleRoot;
       }
-
-      @Override
-      public File moduleHome(final ModuleId moduleId) {
-        File moduleHome = new File(moduleRoot(moduleId), moduleId.getRevision());
-        if (!moduleHome.exists()) {
-          moduleHome.mkdirs();
+    }
+    List<Future<ResolvedRevision<?>>> lookups = new ArrayList<Future<ResolvedRevision<?>>>();
+    try {
+      for (DependencyResolver resolver : resolvers) {
+        if (resolver instanceof AbstractResolver) {
+          final AbstractResolver<?> candidate = (AbstractResolver<?>) resolver;
+          lookups.add(context.submit(new Callable<ResolvedRevision<?>>() {
+            @Override
+            public ResolvedRevision<?> call() throws IOException {
+              return candidate.lookup(moduleId);
+            }
+          }));
+        } else {
+          // can't split it in phases, resolve it when its turn comes
+          lookups.add(null);
         }
-        return moduleHome;
       }
-
-      @Override
-      public Module get(final ModuleId moduleId) {
-        Module module = registry.get(moduleId);
-        return module;
+      for (int i = 0; i < lookups.size(); i++) {
+        DependencyResolver resolver = resolvers.get(i);
+        try {
+          Future<ResolvedRevision<?>> lookup = lookups.get(i);
+          if (lookup == null) {
+            return new Step(resolver.resolve(context, moduleId));
+          }
+          ResolvedRevision<?> revision = ResolutionContext.await(lookup);
+          // we have a winner
+          cancel(lookups);
+          logger.debug("{} won the race for: {}", resolver.getName(), moduleId);
+          return step(context, (AbstractResolver<?>) resolver, revision);
+        } catch (UnresolvedDependencyException ex) {
+          logger.debug("{} fail to resolve: {}", resolver.getName(), moduleId);
+          logger.debug("  reason:", ex);
+        }
       }
+    } finally {
+      cancel(lookups);
+    }
+    throw new UnresolvedDependencyException(moduleId + " tried " + resolvers);
+  }
 
-      @Override
-      public File getBaseDir() {
-        return baseDir;
+  private static void cancel(final List<? extends Future<?>> futures) {
+    for (Future<?> future : futures) {
+      if (future != null) {
+        future.cancel(true);
       }
-    };
+    }
+  }
+
+  public Module resolve(final ModuleId moduleId) throws IOException {
+    DependencyContext context = newDependencyContext(baseDir);
+    Module cached = context.getIndex().load(moduleId);
+    if (cached != null) {
+      logger.info("{} found in cache", moduleId);
+      return cached;
+    }
+    Module module = plan(context, Collections.singletonList(moduleId)).install(context, downloads)
+        .get(0);
+    logger.info("  found it!!");
+    return module;
+  }
+
+  private DependencyContext newDependencyContext(final File baseDir) throws IOException {
+    return new ResolutionContext(baseDir, ModuleIndex.open(baseDir),
+        new ConcurrentHashMap<ModuleId, Module>(), executor);
   }
 }
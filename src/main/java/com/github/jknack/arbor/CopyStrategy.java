@@ -0,0 +1,120 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.arbor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import com.github.jknack.arbor.io.Digests;
+
+/**
+ * How {@link Module#copyTo(File, CopyStrategy, java.util.concurrent.Executor)} writes a module
+ * file into the target directory.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+public enum CopyStrategy {
+
+  /**
+   * Always copy the file (NIO copy, the modification time is preserved).
+   */
+  COPY {
+    @Override
+    public boolean copy(final File source, final File target) throws IOException {
+      nioCopy(source, target);
+      return true;
+    }
+  },
+
+  /**
+   * Hard link the file, or copy it if the file system doesn't support hard links (or the target
+   * is in a different file system). The target shares the content with the module home, it must
+   * not be modified.
+   */
+  LINK {
+    @Override
+    public boolean copy(final File source, final File target) throws IOException {
+      if (target.exists() && Files.isSameFile(source.toPath(), target.toPath())) {
+        return false;
+      }
+      target.getParentFile().mkdirs();
+      Files.deleteIfExists(target.toPath());
+      try {
+        Files.createLink(target.toPath(), source.toPath());
+      } catch (UnsupportedOperationException ex) {
+        nioCopy(source, target);
+      } catch (IOException ex) {
+        nioCopy(source, target);
+      }
+      return true;
+    }
+  },
+
+  /**
+   * Skip files whose target has the same size and modification time, copy the others like
+   * {@link #COPY}.
+   */
+  SKIP_UNCHANGED {
+    @Override
+    public boolean copy(final File source, final File target) throws IOException {
+      if (target.length() == source.length() && target.lastModified() == source.lastModified()) {
+        return false;
+      }
+      return COPY.copy(source, target);
+    }
+  },
+
+  /**
+   * Skip files whose target has the same content (size and SHA-256), copy the others like
+   * {@link #COPY}. Slower than {@link #SKIP_UNCHANGED}, but safe for targets touched by other
+   * tools.
+   */
+  SKIP_IDENTICAL {
+    @Override
+    public boolean copy(final File source, final File target) throws IOException {
+      if (target.exists() && target.length() == source.length()
+          && Digests.sha256(target).equals(Digests.sha256(source))) {
+        return false;
+      }
+      return COPY.copy(source, target);
+    }
+  };
+
+  /**
+   * Copy a file.
+   *
+   * @param source The source file.
+   * @param target The target file.
+   * @return False if the file was skipped.
+   * @throws IOException If the file can't be copied.
+   */
+  public abstract boolean copy(File source, File target) throws IOException;
+
+  /**
+   * Copy a file with {@link Files#copy}, preserving the modification time.
+   *
+   * @param source The source file.
+   * @param target The target file.
+   * @throws IOException If the file can't be copied.
+   */
+  private static void nioCopy(final File source, final File target) throws IOException {
+    target.getParentFile().mkdirs();
+    Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.COPY_ATTRIBUTES);
+  }
+}
@@ -15,6 +15,10 @@
 package com.github.jknack.arbor;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 public interface DependencyContext {
 
@@ -27,4 +31,34 @@ public interface DependencyContext {
   File getBaseDir();
 
   Module get(final ModuleId moduleId);
+
+  ModuleIndex getIndex();
+
+  /**
+   * Resolve a module once: concurrent calls for the same module share the in-flight resolution.
+   *
+   * @param moduleId The module id.
+   * @param resolution The resolution task.
+   * @return The resolved module.
+   * @throws IOException If the resolution fails.
+   */
+  Module resolve(final ModuleId moduleId, final Callable<Module> resolution) throws IOException;
+
+  /**
+   * Run the given tasks (in parallel if possible) and wait for them.
+   *
+   * @param tasks The tasks to run.
+   * @return The task results in the same order.
+   * @throws IOException If any of the tasks fails.
+   */
+  <T> List<T> invokeAll(final List<Callable<T>> tasks) throws IOException;
+
+  /**
+   * Start a task in the background if possible. Without an executor, the task runs when someone
+   * waits for it.
+   *
+   * @param task The task to run.
+   * @return The task's future.
+   */
+  <T> Future<T> submit(final Callable<T> task);
 }
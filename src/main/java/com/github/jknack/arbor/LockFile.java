@@ -0,0 +1,219 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.arbor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.jknack.arbor.io.Digests;
+
+/**
+ * The <code>arbor.lock</code> file: the modules resolved for a package.json. When the
+ * package.json dependencies don't change, the lock file is enough for installing the same modules
+ * again without asking any registry.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+public class LockFile {
+
+  /**
+   * A locked module.
+   *
+   * @author edgar.espina
+   * @since 0.1.0
+   */
+  public static class LockedModule {
+    /**
+     * The module id, with a concrete revision.
+     */
+    private ModuleId id;
+
+    /**
+     * The resolver that supplied the module.
+     */
+    private String resolver;
+
+    /**
+     * Where the module came from.
+     */
+    private String source;
+
+    /**
+     * The SHA-256 of the module's main file.
+     */
+    private String integrity;
+
+    /**
+     * Creates a new {@link LockedModule}.
+     *
+     * @param module The module.
+     * @throws IOException If the main file can't be read.
+     */
+    public LockedModule(final Module module) throws IOException {
+      this.id = module.getId();
+      this.resolver = module.getResolver();
+      this.source = module.getSource();
+      this.integrity = Digests.sha256(module.getLocalFile());
+    }
+
+    /**
+     * Required by Jackson.
+     */
+    protected LockedModule() {
+    }
+
+    public ModuleId getId() {
+      return id;
+    }
+
+    public String getResolver() {
+      return resolver;
+    }
+
+    public String getSource() {
+      return source;
+    }
+
+    public String getIntegrity() {
+      return integrity;
+    }
+  }
+
+  /**
+   * The lock file's name.
+   */
+  public static final String FILE_NAME = "arbor.lock";
+
+  /**
+   * The logging system.
+   */
+  private static final Logger logger = LoggerFactory.getLogger(LockFile.class);
+
+  /**
+   * The hash of the package.json dependencies.
+   */
+  private String hash;
+
+  /**
+   * The package.json dependencies: name to locked revision.
+   */
+  private Map<String, String> dependencies = new LinkedHashMap<String, String>();
+
+  /**
+   * All the resolved modules.
+   */
+  private List<LockedModule> modules = new ArrayList<LockedModule>();
+
+  /**
+   * Creates a new {@link LockFile}.
+   *
+   * @param hash The hash of the package.json dependencies.
+   * @param root The resolved package.json.
+   * @throws IOException If a module can't be read.
+   */
+  public LockFile(final String hash, final Module root) throws IOException {
+    this.hash = hash;
+    for (Module dependency : root.dependencies()) {
+      dependencies.put(dependency.getId().getName(), dependency.getId().getRevision());
+    }
+    final Map<ModuleId, Module> all = new LinkedHashMap<ModuleId, Module>();
+    root.traverse(new ModuleVisitor() {
+      @Override
+      public void visit(final Module module) {
+        all.put(module.getId(), module);
+      }
+
+      @Override
+      public void endvisit(final Module module) {
+      }
+    });
+    all.remove(root.getId());
+    for (Module module : all.values()) {
+      modules.add(new LockedModule(module));
+    }
+  }
+
+  /**
+   * Required by Jackson.
+   */
+  protected LockFile() {
+  }
+
+  public String getHash() {
+    return hash;
+  }
+
+  public Map<String, String> getDependencies() {
+    return dependencies;
+  }
+
+  public List<LockedModule> getModules() {
+    return modules;
+  }
+
+  /**
+   * Read a lock file.
+   *
+   * @param file The lock file.
+   * @return The lock file or null if it doesn't exist or it can't be read.
+   */
+  public static LockFile read(final File file) {
+    if (!file.exists()) {
+      return null;
+    }
+    try {
+      return JsonParser.read(FileUtils.readFileToString(file), LockFile.class);
+    } catch (IOException ex) {
+      logger.warn("Ignoring unreadable lock file: " + file, ex);
+      return null;
+    }
+  }
+
+  /**
+   * Save the lock file.
+   *
+   * @param file The lock file.
+   * @throws IOException If the file can't be written.
+   */
+  public void write(final File file) throws IOException {
+    JsonParser.write(file, this);
+  }
+
+  /**
+   * Hash the dependencies of a package.json. The order of the dependencies doesn't matter.
+   *
+   * @param dependencies The package.json dependencies.
+   * @return The dependencies hash.
+   */
+  public static String hash(final Map<String, String> dependencies) {
+    StringBuilder buffer = new StringBuilder();
+    for (Entry<String, String> dependency : new TreeMap<String, String>(dependencies)
+        .entrySet()) {
+      buffer.append(new ModuleId(dependency.getKey(), dependency.getValue())).append('\n');
+    }
+    return Digests.sha256(buffer.toString());
+  }
+}
@@ -20,28 +20,88 @@ import static org.apache.commons.lang3.Validate.notEmpty;
 import static org.apache.commons.lang3.Validate.notNull;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.NameFileFilter;
 import org.apache.commons.io.filefilter.TrueFileFilter;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
 public class Module {
 
+  /**
+   * The module descriptor's file name.
+   */
+  public static final String DESCRIPTOR = "module.json";
+
+  /**
+   * Appended to bundled files without a trailing new line.
+   */
+  private static final byte[] NEW_LINE = {'\n' };
+
   private ModuleId id;
 
-  private Set<Module> dependencies = new LinkedHashSet<Module>();
+  /**
+   * The dependency ids. That's all module.json keeps about dependencies: the graph is relinked
+   * lazily, see {@link #dependencies()}.
+   */
+  private List<ModuleId> requires = new ArrayList<ModuleId>();
+
+  /**
+   * Nested dependencies, found in module.json files written before {@link #requires}.
+   */
+  @JsonInclude(Include.NON_NULL)
+  private List<Module> dependencies;
 
   private File home;
 
   private String main;
 
+  /**
+   * The resolver that supplied the module.
+   */
+  private String resolver;
+
+  /**
+   * Where the module came from.
+   */
+  private String source;
+
+  /**
+   * The dependencies that have been linked so far.
+   */
+  @JsonIgnore
+  private final Map<ModuleId, Module> linked = new ConcurrentHashMap<ModuleId, Module>();
+
+  /**
+   * The index used for linking the dependencies of a loaded module.
+   */
+  @JsonIgnore
+  private ModuleIndex index;
+
   public Module(final ModuleId moduleId, final File home, final String main) {
     id = notNull(moduleId, "The moduleId is required.");
     this.home = notNull(home, "The moduleHome is required.");
@@ -55,23 +115,153 @@ public class Module {
     return id;
   }
 
+  public File getHome() {
+    return home;
+  }
+
+  public String getMain() {
+    return main;
+  }
+
+  public String getResolver() {
+    return resolver;
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  /**
+   * Record where the module came from.
+   *
+   * @param resolver The resolver that supplied the module.
+   * @param source Where the module came from.
+   */
+  void setOrigin(final String resolver, final String source) {
+    this.resolver = resolver;
+    this.source = source;
+  }
+
   public File getLocalFile() {
     return new File(home, main);
   }
 
-  public void add(final Module dependency) {
-    dependencies.add(dependency);
+  public synchronized void add(final Module dependency) {
+    upgrade();
+    ModuleId dependencyId = dependency.getId();
+    if (!requires.contains(dependencyId)) {
+      requires.add(dependencyId);
+    }
+    linked.put(dependencyId, dependency);
+  }
+
+  /**
+   * The ids of the direct dependencies.
+   *
+   * @return The ids of the direct dependencies.
+   */
+  public synchronized List<ModuleId> getRequires() {
+    upgrade();
+    return new ArrayList<ModuleId>(requires);
+  }
+
+  /**
+   * The direct dependencies. Dependencies of a loaded module are linked on first access, using
+   * the index that loaded the module.
+   *
+   * @return The direct dependencies.
+   * @throws UnresolvedDependencyException If a dependency isn't installed.
+   */
+  public List<Module> dependencies() throws UnresolvedDependencyException {
+    List<ModuleId> requires = getRequires();
+    List<Module> dependencies = new ArrayList<Module>(requires.size());
+    for (ModuleId dependencyId : requires) {
+      Module dependency = linked.get(dependencyId);
+      if (dependency == null) {
+        dependency = link(dependencyId);
+      }
+      dependencies.add(dependency);
+    }
+    return dependencies;
+  }
+
+  /**
+   * Find a dependency in the index.
+   *
+   * @param dependencyId The dependency id.
+   * @return The dependency.
+   * @throws UnresolvedDependencyException If the dependency isn't installed.
+   */
+  private Module link(final ModuleId dependencyId) throws UnresolvedDependencyException {
+    try {
+      Module dependency = index == null ? null : index.load(dependencyId);
+      if (dependency == null) {
+        throw new UnresolvedDependencyException("Missing dependency " + dependencyId + " of "
+            + id);
+      }
+      linked.put(dependencyId, dependency);
+      return dependency;
+    } catch (UnresolvedDependencyException ex) {
+      throw ex;
+    } catch (IOException ex) {
+      throw new UnresolvedDependencyException(dependencyId.toString(), ex);
+    }
+  }
+
+  /**
+   * Move nested dependencies (old module.json format) to {@link #requires}.
+   */
+  private void upgrade() {
+    if (dependencies != null) {
+      for (Module dependency : dependencies) {
+        ModuleId dependencyId = dependency.getId();
+        if (!requires.contains(dependencyId)) {
+          requires.add(dependencyId);
+        }
+        dependency.index = index;
+        linked.put(dependencyId, dependency);
+      }
+      dependencies = null;
+    }
+  }
+
+  /**
+   * Set the index used for linking the dependencies of a loaded module.
+   *
+   * @param index The module index.
+   */
+  void setIndex(final ModuleIndex index) {
+    this.index = index;
   }
 
   public void traverse(final ModuleVisitor visitor) throws IOException {
     visitor.visit(this);
-    for (Module dependency : dependencies) {
+    for (Module dependency : dependencies()) {
       dependency.traverse(visitor);
     }
     visitor.endvisit(this);
   }
 
   public void copyTo(final File baseDir) throws IOException {
+    copyTo(baseDir, CopyStrategy.COPY, null);
+  }
+
+  /**
+   * Copy the main file of this module and its dependencies (one revision per module name) into a
+   * directory.
+   *
+   * @param baseDir The target directory. Required.
+   * @param strategy How files are copied, like {@link CopyStrategy#SKIP_UNCHANGED} for
+   *        incremental builds. Required.
+   * @param executor The executor for copying files in parallel or null for serial copies.
+   * @return The number of files copied, skipped files aren't counted.
+   * @throws IOException If a file can't be copied.
+   */
+  public int copyTo(final File baseDir, final CopyStrategy strategy, final Executor executor)
+      throws IOException {
+    notNull(baseDir, "The baseDir is required.");
+    notNull(strategy, "The strategy is required.");
+    final List<FutureTask<Boolean>> copies = new ArrayList<FutureTask<Boolean>>();
     traverse(new ModuleVisitor() {
       private Map<String, Module> modules = new HashMap<String, Module>();
 
@@ -79,13 +269,14 @@ public class Module {
       public void visit(final Module module) throws IOException {
         ModuleId moduleId = module.getId();
         if (!modules.containsKey(moduleId.getName())) {
-          final String filename;
-          if (URI.create(moduleId.getRevision()).isAbsolute()) {
-            filename = getName(moduleId.getRevision());
-          } else {
-            filename = moduleId.getName() + "-" + moduleId.getRevision() + ".js";
-          }
-          FileUtils.copyFile(module.getLocalFile(), new File(baseDir, filename));
+          final File source = module.getLocalFile();
+          final File target = new File(baseDir, filename(moduleId));
+          copies.add(new FutureTask<Boolean>(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws IOException {
+              return strategy.copy(source, target);
+            }
+          }));
           modules.put(moduleId.getName(), module);
         }
       }
@@ -94,6 +285,215 @@ public class Module {
       public void endvisit(final Module module) {
       }
     });
+    if (executor != null && copies.size() > 1) {
+      for (FutureTask<Boolean> copy : copies) {
+        try {
+          executor.execute(copy);
+        } catch (RejectedExecutionException ex) {
+          // saturated executor, run it below
+        }
+      }
+    }
+    int copied = 0;
+    for (FutureTask<Boolean> copy : copies) {
+      if (ResolutionContext.await(copy)) {
+        copied++;
+      }
+    }
+    return copied;
+  }
+
+  /**
+   * Concatenate the main file of this module and its dependencies into a single file,
+   * dependencies first. Like {@link #copyTo(File)}, a module name is bundled once.
+   *
+   * @param bundle The bundle file. Required.
+   * @return The bundled modules, in bundle order.
+   * @throws IOException If the bundle can't be written.
+   */
+  public List<Module> bundleTo(final File bundle) throws IOException {
+    return bundleTo(bundle, null);
+  }
+
+  /**
+   * Concatenate the main file of this module and its dependencies into a single file,
+   * dependencies first. Like {@link #copyTo(File)}, a module name is bundled once. Files are
+   * transferred channel to channel, without copying them through the heap. Modules whose main
+   * file isn't a <code>.js</code> file are left out, like the root of
+   * {@link Arbor#resolve(File)}, which is the <code>package.json</code> itself.
+   * <p>
+   * A source map (an index map with a section per module) maps every line of the bundle back to
+   * its module file, named like in {@link #copyTo(File)}. Files are read twice for building it
+   * (lines must be counted).
+   * </p>
+   *
+   * @param bundle The bundle file. Required.
+   * @param sourceMap The source map file or null for no source map.
+   * @return The bundled modules, in bundle order.
+   * @throws IOException If the bundle can't be written.
+   */
+  public List<Module> bundleTo(final File bundle, final File sourceMap) throws IOException {
+    notNull(bundle, "The bundle is required.");
+    final List<Module> modules = new ArrayList<Module>();
+    traverse(new ModuleVisitor() {
+      private Map<String, Module> selected = new HashMap<String, Module>();
+
+      @Override
+      public void visit(final Module module) {
+        String name = module.getId().getName();
+        if (!selected.containsKey(name)) {
+          selected.put(name, module);
+        }
+      }
+
+      @Override
+      public void endvisit(final Module module) {
+        // post order: all the dependencies are in by now
+        if (selected.get(module.getId().getName()) == module && module.getMain().endsWith(".js")
+            && !modules.contains(module)) {
+          modules.add(module);
+        }
+      }
+    });
+
+    if (bundle.getParentFile() != null) {
+      bundle.getParentFile().mkdirs();
+    }
+    JsonGenerator map = null;
+    if (sourceMap != null) {
+      map = new JsonFactory().createGenerator(sourceMap, JsonEncoding.UTF8);
+      map.writeStartObject();
+      map.writeNumberField("version", 3);
+      map.writeStringField("file", bundle.getName());
+      map.writeArrayFieldStart("sections");
+    }
+    FileOutputStream out = new FileOutputStream(bundle);
+    try {
+      FileChannel target = out.getChannel();
+      int line = 0;
+      for (Module module : modules) {
+        FileInputStream in = new FileInputStream(module.getLocalFile());
+        try {
+          FileChannel source = in.getChannel();
+          long size = source.size();
+          long position = 0;
+          while (position < size) {
+            long transferred = source.transferTo(position, size - position, target);
+            if (transferred <= 0) {
+              throw new IOException("Can't bundle: " + module.getLocalFile());
+            }
+            position += transferred;
+          }
+          boolean newLine = size == 0 || lastByte(source) == '\n';
+          if (!newLine) {
+            target.write(ByteBuffer.wrap(NEW_LINE));
+          }
+          if (map != null && size > 0) {
+            int lines = lines(source) + (newLine ? 0 : 1);
+            writeSection(map, line, filename(module.getId()), lines);
+            line += lines;
+          }
+        } finally {
+          in.close();
+        }
+      }
+      if (map != null) {
+        target.write(ByteBuffer.wrap(("//# sourceMappingURL=" + sourceMap.getName() + "\n")
+            .getBytes("UTF-8")));
+        map.writeEndArray();
+        map.writeEndObject();
+      }
+    } finally {
+      out.close();
+      if (map != null) {
+        map.close();
+      }
+    }
+    return modules;
+  }
+
+  /**
+   * The file name of a module in {@link #copyTo(File)} and {@link #bundleTo(File, File)}.
+   *
+   * @param moduleId The module id.
+   * @return The file name.
+   */
+  private static String filename(final ModuleId moduleId) {
+    if (URI.create(moduleId.getRevision()).isAbsolute()) {
+      return getName(moduleId.getRevision());
+    }
+    return moduleId.getName() + "-" + moduleId.getRevision() + ".js";
+  }
+
+  /**
+   * The last byte of a file.
+   *
+   * @param channel The file. It must not be empty.
+   * @return The last byte.
+   * @throws IOException If the file can't be read.
+   */
+  private static byte lastByte(final FileChannel channel) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(1);
+    channel.read(buffer, channel.size() - 1);
+    return buffer.get(0);
+  }
+
+  /**
+   * Count the new lines of a file.
+   *
+   * @param channel The file.
+   * @return The number of new lines.
+   * @throws IOException If the file can't be read.
+   */
+  private static int lines(final FileChannel channel) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(8192);
+    long position = 0;
+    int lines = 0;
+    int read;
+    while ((read = channel.read(buffer, position)) > 0) {
+      for (int i = 0; i < read; i++) {
+        if (buffer.get(i) == '\n') {
+          lines++;
+        }
+      }
+      position += read;
+      buffer.clear();
+    }
+    return lines;
+  }
+
+  /**
+   * Write a source map section: each line of the module maps to the same line of its file.
+   *
+   * @param map The source map.
+   * @param line The first line of the module in the bundle.
+   * @param file The module file.
+   * @param lines The number of lines of the module.
+   * @throws IOException If the section can't be written.
+   */
+  private static void writeSection(final JsonGenerator map, final int line, final String file,
+      final int lines) throws IOException {
+    StringBuilder mappings = new StringBuilder(lines * 5);
+    // first line maps to line 0, the others to the next line
+    mappings.append("AAAA");
+    for (int i = 1; i < lines; i++) {
+      mappings.append(";AACA");
+    }
+    map.writeStartObject();
+    map.writeObjectFieldStart("offset");
+    map.writeNumberField("line", line);
+    map.writeNumberField("column", 0);
+    map.writeEndObject();
+    map.writeObjectFieldStart("map");
+    map.writeNumberField("version", 3);
+    map.writeArrayFieldStart("sources");
+    map.writeString(file);
+    map.writeEndArray();
+    map.writeArrayFieldStart("names");
+    map.writeEndArray();
+    map.writeStringField("mappings", mappings.toString());
+    map.writeEndObject();
+    map.writeEndObject();
   }
 
   @Override
@@ -146,6 +546,19 @@ public class Module {
   }
 
   public void validate() throws UnresolvedDependencyException {
+    validate(new HashSet<ModuleId>());
+  }
+
+  /**
+   * Validate a module and its dependencies, once per module (the graph might have cycles).
+   *
+   * @param visited The modules validated so far.
+   * @throws UnresolvedDependencyException If a module can't be resolved to a file.
+   */
+  private void validate(final Set<ModuleId> visited) throws UnresolvedDependencyException {
+    if (!visited.add(id)) {
+      return;
+    }
     if (!getLocalFile().exists()) {
       // corrupted package!!!
       // 1) package.json exists but the 'main' entry points to unexisting file or
@@ -168,13 +581,28 @@ public class Module {
         throw new UnresolvedDependencyException("Unable to resolve " + id + " to a file");
       }
     }
-    for (Module dependency : dependencies) {
-      dependency.validate();
+    for (Module dependency : dependencies()) {
+      dependency.validate(visited);
     }
   }
 
   public void save() throws IOException {
     validate();
-    JsonParser.write(new File(home, "module.json"), this);
+    synchronized (this) {
+      upgrade();
+      JsonParser.write(new File(home, DESCRIPTOR), this);
+    }
+  }
+
+  /**
+   * Save the module descriptor and add the module to the given index.
+   *
+   * @param index The module index.
+   * @throws IOException If the module can't be saved.
+   */
+  public void save(final ModuleIndex index) throws IOException {
+    save();
+    this.index = index;
+    index.put(this);
   }
 }
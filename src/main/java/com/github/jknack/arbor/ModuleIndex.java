@@ -0,0 +1,539 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.arbor;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.filefilter.NameFileFilter;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent index of the modules installed under a base directory: it maps a
+ * {@link ModuleId} to the module's home and main file, so finding a module doesn't require a
+ * walk over the base directory.
+ * The index is an append-only binary log ({@link #FILE_NAME}): every
+ * {@link Module#save(ModuleIndex)} appends one record and the last record of a module wins. The
+ * log is read once per process and kept in a hash table; records appended by other processes are
+ * picked up on a miss.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+public final class ModuleIndex {
+
+  /**
+   * The index file name.
+   */
+  public static final String FILE_NAME = ".arbor-index";
+
+  /**
+   * The index file header.
+   */
+  private static final int MAGIC = 0x41524958;
+
+  /**
+   * The index format version.
+   */
+  private static final int FORMAT = 1;
+
+  /**
+   * The length of the header.
+   */
+  private static final int HEADER_SIZE = 8;
+
+  /**
+   * An index entry.
+   *
+   * @author edgar.espina
+   * @since 0.1.0
+   */
+  private static final class Entry {
+    /**
+     * The module's home.
+     */
+    final File home;
+
+    /**
+     * The module's main file.
+     */
+    final String main;
+
+    /**
+     * Creates a new {@link Entry}.
+     *
+     * @param home The module's home.
+     * @param main The module's main file.
+     */
+    Entry(final File home, final String main) {
+      this.home = home;
+      this.main = main;
+    }
+  }
+
+  /**
+   * The open indexes by base directory.
+   */
+  private static final ConcurrentMap<File, ModuleIndex> indexes =
+      new ConcurrentHashMap<File, ModuleIndex>();
+
+  /**
+   * The logging system.
+   */
+  private static final Logger logger = LoggerFactory.getLogger(ModuleIndex.class);
+
+  /**
+   * The base directory.
+   */
+  private final File baseDir;
+
+  /**
+   * The index file.
+   */
+  private final File file;
+
+  /**
+   * The index entries.
+   */
+  private final Map<ModuleId, Entry> entries = new ConcurrentHashMap<ModuleId, Entry>();
+
+  /**
+   * The modules loaded so far, shared by all the modules that depend on them.
+   */
+  private final ConcurrentMap<ModuleId, Module> loaded = new ConcurrentHashMap<ModuleId, Module>();
+
+  /**
+   * The number of bytes of the index file that have been read.
+   */
+  private volatile long offset;
+
+  /**
+   * Creates a new {@link ModuleIndex}. Callers should use {@link #open(File)}: a second instance
+   * over the same base directory acts like the index of another process.
+   *
+   * @param baseDir The base directory.
+   */
+  ModuleIndex(final File baseDir) {
+    this.baseDir = baseDir;
+    this.file = new File(baseDir, FILE_NAME);
+  }
+
+  /**
+   * Open the index of the given base directory. Indexes are shared by all the callers of the same
+   * process. An index is created from the existing <code>module.json</code> files the first time.
+   *
+   * @param baseDir The base directory. Required.
+   * @return The index of the given base directory.
+   * @throws IOException If the index can't be read.
+   */
+  public static ModuleIndex open(final File baseDir) throws IOException {
+    notNull(baseDir, "The baseDir is required.");
+    File key = baseDir.getCanonicalFile();
+    ModuleIndex index = indexes.get(key);
+    if (index == null) {
+      ModuleIndex newIndex = new ModuleIndex(key);
+      index = indexes.putIfAbsent(key, newIndex);
+      if (index == null) {
+        index = newIndex;
+      }
+    }
+    index.refresh();
+    return index;
+  }
+
+  /**
+   * Find a module.
+   *
+   * @param moduleId The module id.
+   * @return The module's main file or null if the module isn't installed.
+   * @throws IOException If the index can't be read.
+   */
+  public File find(final ModuleId moduleId) throws IOException {
+    Entry entry = entry(moduleId);
+    return entry == null ? null : new File(entry.home, entry.main);
+  }
+
+  /**
+   * Find and load a module. Every module is loaded once: its dependencies are linked on demand
+   * from the same index, see {@link Module#dependencies()}.
+   *
+   * @param moduleId The module id.
+   * @return The module or null if the module isn't installed.
+   * @throws IOException If the module can't be read.
+   */
+  public Module load(final ModuleId moduleId) throws IOException {
+    Entry entry = entry(moduleId);
+    if (entry == null) {
+      return null;
+    }
+    File descriptor = new File(entry.home, Module.DESCRIPTOR);
+    if (!descriptor.exists()) {
+      // deleted by hand
+      logger.debug("{} isn't at {} any more", moduleId, entry.home);
+      remove(moduleId);
+      return null;
+    }
+    Module module = loaded.get(moduleId);
+    if (module != null) {
+      return module;
+    }
+    module = JsonParser.read(FileUtils.readFileToString(descriptor), Module.class);
+    if (!moduleId.equals(module.getId())) {
+      // another module was installed at the same home
+      logger.debug("{} found {} at {}", new Object[]{moduleId, module.getId(), entry.home });
+      remove(moduleId);
+      return null;
+    }
+    module.setIndex(this);
+    Module existing = loaded.putIfAbsent(moduleId, module);
+    return existing == null ? module : existing;
+  }
+
+  /**
+   * The number of modules in the index.
+   *
+   * @return The number of modules in the index.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Add a module to the index.
+   *
+   * @param moduleId The module id.
+   * @param home The module's home.
+   * @param main The module's main file.
+   * @throws IOException If the index can't be written.
+   */
+  void put(final ModuleId moduleId, final File home, final String main) throws IOException {
+    Entry entry = new Entry(home.getAbsoluteFile(), main);
+    append(moduleId, entry);
+    entries.put(moduleId, entry);
+    loaded.remove(moduleId);
+  }
+
+  /**
+   * Add a saved module to the index.
+   *
+   * @param module The module.
+   * @throws IOException If the index can't be written.
+   */
+  void put(final Module module) throws IOException {
+    put(module.getId(), module.getHome(), module.getMain());
+    loaded.put(module.getId(), module);
+  }
+
+  /**
+   * Remove a module from the index.
+   *
+   * @param moduleId The module id.
+   * @throws IOException If the index can't be written.
+   */
+  void remove(final ModuleId moduleId) throws IOException {
+    loaded.remove(moduleId);
+    if (entries.remove(moduleId) != null) {
+      append(moduleId, null);
+    }
+  }
+
+  /**
+   * Find an index entry, reading the records appended by other processes on a miss.
+   *
+   * @param moduleId The module id.
+   * @return The entry or null.
+   * @throws IOException If the index can't be read.
+   */
+  private Entry entry(final ModuleId moduleId) throws IOException {
+    Entry entry = entries.get(moduleId);
+    if (entry == null && file.length() != offset) {
+      refresh();
+      entry = entries.get(moduleId);
+    }
+    return entry;
+  }
+
+  /**
+   * Read the records added since the last read. A missing index is created from the existing
+   * <code>module.json</code> files and an index that shrank (rebuilt by another process) is read
+   * again from the beginning.
+   *
+   * @throws IOException If the index can't be read.
+   */
+  private synchronized void refresh() throws IOException {
+    if (!file.exists()) {
+      rebuild();
+      return;
+    }
+    long length = file.length();
+    if (length < offset) {
+      logger.debug("Index was rebuilt, reloading: {}", file);
+      entries.clear();
+      offset = 0;
+    }
+    if (length <= offset) {
+      return;
+    }
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      long position = offset;
+      if (position == 0) {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT) {
+          logger.warn("Unknown index format: {}", file);
+          IOUtils.closeQuietly(in);
+          rebuild();
+          return;
+        }
+        position = HEADER_SIZE;
+      } else {
+        IOUtils.skipFully(in, position);
+      }
+      while (position < length) {
+        int size = in.readInt();
+        ModuleId moduleId = new ModuleId(in.readUTF(), in.readUTF());
+        String home = in.readUTF();
+        String main = in.readUTF();
+        if (main.length() == 0) {
+          entries.remove(moduleId);
+        } else {
+          entries.put(moduleId, new Entry(resolve(home), main));
+        }
+        position += 4 + size;
+        offset = position;
+      }
+    } catch (EOFException ex) {
+      // a partial record, written by a crashed process
+      IOUtils.closeQuietly(in);
+      truncate(length);
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  /**
+   * Drop a partial record at the end of the index file.
+   *
+   * @param length The length of the index file when the partial record was found.
+   * @throws IOException If the index can't be written.
+   */
+  private void truncate(final long length) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      FileChannel channel = raf.getChannel();
+      FileLock lock = channel.lock();
+      try {
+        // nobody else wrote to it in the meantime
+        if (channel.size() == length) {
+          logger.debug("Dropping partial record at: {}", offset);
+          channel.truncate(offset);
+        }
+      } finally {
+        lock.release();
+      }
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * Build the index from the existing <code>module.json</code> files. The index file is
+   * rewritten while holding its lock, unless another process rebuilt it in the meantime.
+   *
+   * @throws IOException If the index can't be written.
+   */
+  private void rebuild() throws IOException {
+    if (!baseDir.exists()) {
+      baseDir.mkdirs();
+    }
+    boolean rebuilt = false;
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      FileChannel channel = raf.getChannel();
+      // other processes might share the same base directory
+      FileLock lock = channel.lock();
+      try {
+        if (!hasHeader(channel)) {
+          logger.debug("Building index: {}", file);
+          rebuild(channel);
+          rebuilt = true;
+        }
+      } finally {
+        lock.release();
+      }
+    } finally {
+      raf.close();
+    }
+    if (!rebuilt) {
+      // somebody else did it, just read it
+      entries.clear();
+      offset = 0;
+      refresh();
+    }
+  }
+
+  /**
+   * Rewrite the index file from the existing <code>module.json</code> files. The caller must hold
+   * the index file lock.
+   *
+   * @param channel The index file channel.
+   * @throws IOException If the index can't be written.
+   */
+  private void rebuild(final FileChannel channel) throws IOException {
+    entries.clear();
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(buffer);
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT);
+    Collection<File> files = FileUtils.listFiles(baseDir, new NameFileFilter(Module.DESCRIPTOR),
+        TrueFileFilter.INSTANCE);
+    for (File descriptor : files) {
+      Module module = JsonParser.read(FileUtils.readFileToString(descriptor), Module.class);
+      Entry entry = new Entry(descriptor.getParentFile().getAbsoluteFile(), module.getMain());
+      byte[] record = record(module.getId(), entry);
+      out.writeInt(record.length);
+      out.write(record);
+      entries.put(module.getId(), entry);
+      loaded.remove(module.getId());
+    }
+    out.flush();
+    channel.truncate(0);
+    channel.write(ByteBuffer.wrap(buffer.toByteArray()), 0);
+    offset = channel.size();
+  }
+
+  /**
+   * True, if the index file starts with a known header.
+   *
+   * @param channel The index file channel.
+   * @return True, if the index file starts with a known header.
+   * @throws IOException If the index can't be read.
+   */
+  private static boolean hasHeader(final FileChannel channel) throws IOException {
+    if (channel.size() < HEADER_SIZE) {
+      return false;
+    }
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+      continue;
+    }
+    header.flip();
+    return header.getInt() == MAGIC && header.getInt() == FORMAT;
+  }
+
+  /**
+   * Append a record to the index file. A null entry records a removal.
+   *
+   * @param moduleId The module id.
+   * @param entry The entry.
+   * @throws IOException If the index can't be written.
+   */
+  private synchronized void append(final ModuleId moduleId, final Entry entry)
+      throws IOException {
+    byte[] record = record(moduleId, entry);
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      FileChannel channel = raf.getChannel();
+      // other processes might share the same base directory
+      FileLock lock = channel.lock();
+      try {
+        long length = channel.size();
+        boolean upToDate = length == offset;
+        ByteBuffer bytes = ByteBuffer.allocate(HEADER_SIZE + 4 + record.length);
+        if (length == 0) {
+          bytes.putInt(MAGIC).putInt(FORMAT);
+          length = HEADER_SIZE;
+          upToDate = offset == 0;
+        }
+        bytes.putInt(record.length).put(record);
+        bytes.flip();
+        channel.write(bytes, channel.size());
+        if (upToDate) {
+          offset = channel.size();
+        }
+      } finally {
+        lock.release();
+      }
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * Serialize an index record, without its size. A null entry records a removal.
+   *
+   * @param moduleId The module id.
+   * @param entry The entry.
+   * @return The record.
+   * @throws IOException If the record can't be written.
+   */
+  private byte[] record(final ModuleId moduleId, final Entry entry) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(buffer);
+    out.writeUTF(moduleId.getName());
+    out.writeUTF(moduleId.getRevision());
+    out.writeUTF(entry == null ? "" : relativize(entry.home));
+    out.writeUTF(entry == null ? "" : entry.main);
+    out.flush();
+    return buffer.toByteArray();
+  }
+
+  /**
+   * Make a module home relative to the base directory, if possible.
+   *
+   * @param home The module home.
+   * @return A path relative to the base directory or the absolute path.
+   */
+  private String relativize(final File home) {
+    String base = baseDir.getAbsolutePath() + File.separator;
+    String path = home.getAbsolutePath();
+    return path.startsWith(base) ? path.substring(base.length()) : path;
+  }
+
+  /**
+   * Resolve a path written by {@link #relativize(File)}.
+   *
+   * @param path A path.
+   * @return The module home.
+   */
+  private File resolve(final String path) {
+    File home = new File(path);
+    return home.isAbsolute() ? home : new File(baseDir, path);
+  }
+
+  @Override
+  public String toString() {
+    return file.toString();
+  }
+}
@@ -0,0 +1,251 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.arbor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.jknack.arbor.io.Digests;
+
+/**
+ * An exclusive lock over the installation of a module, shared by threads and processes using the
+ * same base directory. The first one to get the lock installs the module, the others wait and
+ * reuse it. Locks are files under <code>baseDir/.locks</code>: a thread semaphore plus a
+ * {@link FileLock}, since file locks are held by the whole JVM.
+ * <p>
+ * A module is locked until it's saved with its dependencies, so a process installing a dependency
+ * cycle waits for a process installing the same cycle in the opposite order. Nobody waits forever:
+ * after <code>arbor.lock.timeout</code> seconds (system property, ten minutes by default) the
+ * installation fails.
+ * </p>
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+final class ModuleLock {
+
+  /**
+   * A thread semaphore and the number of threads holding or waiting for it.
+   *
+   * @author edgar.espina
+   * @since 0.1.0
+   */
+  private static final class Gate {
+    /**
+     * The thread semaphore.
+     */
+    final Semaphore semaphore = new Semaphore(1);
+
+    /**
+     * The number of threads holding or waiting for the semaphore, guarded by {@link #gates}.
+     */
+    int users;
+  }
+
+  /**
+   * The lock directory, under the base directory.
+   */
+  private static final String LOCKS = ".locks";
+
+  /**
+   * How often a busy lock file is checked, in millis.
+   */
+  private static final long POLL = 100;
+
+  /**
+   * The logging system.
+   */
+  private static final Logger logger = LoggerFactory.getLogger(ModuleLock.class);
+
+  /**
+   * Serializes the threads of this JVM, by lock file. A gate is removed once nobody uses it.
+   */
+  private static final Map<File, Gate> gates = new HashMap<File, Gate>();
+
+  /**
+   * How long to wait for a lock, in millis.
+   */
+  static volatile long timeout = TimeUnit.SECONDS.toMillis(Long.getLong("arbor.lock.timeout",
+      600));
+
+  /**
+   * The lock file path.
+   */
+  private final File lockFile;
+
+  /**
+   * The thread gate.
+   */
+  private final Gate gate;
+
+  /**
+   * The lock file.
+   */
+  private final RandomAccessFile file;
+
+  /**
+   * The process lock.
+   */
+  private final FileLock lock;
+
+  /**
+   * Creates a new {@link ModuleLock}.
+   *
+   * @param lockFile The lock file path.
+   * @param gate The thread gate.
+   * @param file The lock file.
+   * @param lock The process lock.
+   */
+  private ModuleLock(final File lockFile, final Gate gate, final RandomAccessFile file,
+      final FileLock lock) {
+    this.lockFile = lockFile;
+    this.gate = gate;
+    this.file = file;
+    this.lock = lock;
+  }
+
+  /**
+   * Lock a module, waiting for other threads or processes installing it.
+   *
+   * @param context The dependency context.
+   * @param moduleId The module id.
+   * @return The lock.
+   * @throws IOException If the lock can't be acquired or it's busy for too long.
+   */
+  public static ModuleLock acquire(final DependencyContext context, final ModuleId moduleId)
+      throws IOException {
+    File lockFile = new File(context.getBaseDir(), LOCKS + File.separator
+        + Digests.sha256(moduleId.toString()) + ".lock").getAbsoluteFile();
+    lockFile.getParentFile().mkdirs();
+    Gate gate;
+    synchronized (gates) {
+      gate = gates.get(lockFile);
+      if (gate == null) {
+        gate = new Gate();
+        gates.put(lockFile, gate);
+      }
+      gate.users++;
+    }
+    long deadline = System.currentTimeMillis() + timeout;
+    boolean locked = false;
+    try {
+      try {
+        if (!gate.semaphore.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+          throw timeout(moduleId);
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for: " + moduleId);
+      }
+      try {
+        RandomAccessFile file = new RandomAccessFile(lockFile, "rw");
+        try {
+          FileLock lock = file.getChannel().tryLock();
+          if (lock == null) {
+            logger.info("waiting for another process installing {}", moduleId);
+          }
+          while (lock == null) {
+            if (System.currentTimeMillis() > deadline) {
+              throw timeout(moduleId);
+            }
+            try {
+              Thread.sleep(POLL);
+            } catch (InterruptedException ex) {
+              Thread.currentThread().interrupt();
+              throw new InterruptedIOException("Interrupted while waiting for: " + moduleId);
+            }
+            lock = file.getChannel().tryLock();
+          }
+          locked = true;
+          return new ModuleLock(lockFile, gate, file, lock);
+        } finally {
+          if (!locked) {
+            file.close();
+          }
+        }
+      } finally {
+        if (!locked) {
+          gate.semaphore.release();
+        }
+      }
+    } finally {
+      if (!locked) {
+        leave(lockFile, gate);
+      }
+    }
+  }
+
+  /**
+   * The error of a lock that's busy for too long.
+   *
+   * @param moduleId The module id.
+   * @return The error.
+   */
+  private static IOException timeout(final ModuleId moduleId) {
+    return new IOException("Timeout waiting for: " + moduleId + ", somebody might be installing "
+        + "a dependency cycle in the opposite order");
+  }
+
+  /**
+   * Stop using a gate, and forget it if nobody else does.
+   *
+   * @param lockFile The lock file path.
+   * @param gate The thread gate.
+   */
+  private static void leave(final File lockFile, final Gate gate) {
+    synchronized (gates) {
+      gate.users--;
+      if (gate.users == 0) {
+        gates.remove(lockFile);
+      }
+    }
+  }
+
+  /**
+   * Release the lock.
+   *
+   * @throws IOException If the lock can't be released.
+   */
+  public void release() throws IOException {
+    try {
+      lock.release();
+      file.close();
+    } finally {
+      gate.semaphore.release();
+      leave(lockFile, gate);
+    }
+  }
+
+  /**
+   * The number of lock files in use by this JVM.
+   *
+   * @return The number of lock files in use by this JVM.
+   */
+  static int inUse() {
+    synchronized (gates) {
+      return gates.size();
+    }
+  }
+}
@@ -0,0 +1,256 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.arbor;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The default {@link DependencyContext}: a concurrent module registry plus an optional
+ * {@link Executor} for resolving dependencies in parallel. Without an executor every task runs in
+ * the calling thread, one after another.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+class ResolutionContext implements DependencyContext {
+
+  /**
+   * The logging system.
+   */
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  /**
+   * The base directory.
+   */
+  private final File baseDir;
+
+  /**
+   * The resolved modules.
+   */
+  private final ConcurrentMap<ModuleId, Module> registry;
+
+  /**
+   * The installed modules.
+   */
+  private final ModuleIndex index;
+
+  /**
+   * The modules being resolved right now.
+   */
+  private final ConcurrentMap<ModuleId, FutureTask<Module>> inFlight =
+      new ConcurrentHashMap<ModuleId, FutureTask<Module>>();
+
+  /**
+   * The executor or null for serial resolution.
+   */
+  private final Executor executor;
+
+  /**
+   * Creates a new {@link ResolutionContext}.
+   *
+   * @param baseDir The base directory. Required.
+   * @param index The installed modules. Required.
+   * @param registry The resolved modules. Required.
+   * @param executor The executor or null for serial resolution.
+   */
+  public ResolutionContext(final File baseDir, final ModuleIndex index,
+      final ConcurrentMap<ModuleId, Module> registry, final Executor executor) {
+    this.baseDir = notNull(baseDir, "The baseDir is required.");
+    this.index = notNull(index, "The index is required.");
+    this.registry = notNull(registry, "The registry is required.");
+    this.executor = executor;
+  }
+
+  @Override
+  public void put(final ModuleId moduleId, final Module module) {
+    if (module == null) {
+      registry.remove(moduleId);
+    } else {
+      registry.put(moduleId, module);
+    }
+  }
+
+  @Override
+  public File moduleRoot(final ModuleId moduleId) {
+    File moduleRoot = new File(baseDir, moduleId.getName());
+    if (!moduleRoot.exists()) {
+      moduleRoot.mkdirs();
+    }
+    return moduleRoot;
+  }
+
+  @Override
+  public File moduleHome(final ModuleId moduleId) {
+    // created by the install, see AbstractResolver#download(DependencyContext, ResolvedRevision)
+    return new File(moduleRoot(moduleId), moduleId.getRevision());
+  }
+
+  @Override
+  public Module get(final ModuleId moduleId) {
+    Module module = registry.get(moduleId);
+    if (module == null) {
+      try {
+        module = index.load(moduleId);
+      } catch (IOException ex) {
+        logger.warn("Can't load: " + moduleId, ex);
+      }
+      if (module != null) {
+        Module existing = registry.putIfAbsent(moduleId, module);
+        if (existing != null) {
+          module = existing;
+        }
+      }
+    }
+    return module;
+  }
+
+  @Override
+  public ModuleIndex getIndex() {
+    return index;
+  }
+
+  @Override
+  public File getBaseDir() {
+    return baseDir;
+  }
+
+  @Override
+  public Module resolve(final ModuleId moduleId, final Callable<Module> resolution)
+      throws IOException {
+    FutureTask<Module> task = new FutureTask<Module>(resolution);
+    FutureTask<Module> existing = inFlight.putIfAbsent(moduleId, task);
+    if (existing != null) {
+      // someone else is resolving it, wait for it
+      return await(existing);
+    }
+    try {
+      task.run();
+      return await(task);
+    } finally {
+      inFlight.remove(moduleId, task);
+    }
+  }
+
+  @Override
+  public <T> List<T> invokeAll(final List<Callable<T>> tasks) throws IOException {
+    List<FutureTask<T>> futures = new ArrayList<FutureTask<T>>(tasks.size());
+    for (Callable<T> task : tasks) {
+      FutureTask<T> future = new FutureTask<T>(task);
+      futures.add(future);
+      if (tasks.size() > 1) {
+        execute(future);
+      }
+    }
+    List<T> results = new ArrayList<T>(futures.size());
+    try {
+      for (FutureTask<T> future : futures) {
+        results.add(await(future));
+      }
+      return results;
+    } finally {
+      if (results.size() < futures.size()) {
+        // something went wrong, don't start pending tasks
+        for (FutureTask<T> future : futures) {
+          future.cancel(false);
+        }
+        // and wait for running ones, so the caller can clean up after them
+        for (FutureTask<T> future : futures) {
+          if (!future.isCancelled()) {
+            try {
+              future.get();
+            } catch (InterruptedException ex) {
+              Thread.currentThread().interrupt();
+              break;
+            } catch (ExecutionException ex) {
+              logger.trace("Task failed", ex);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public <T> Future<T> submit(final Callable<T> task) {
+    FutureTask<T> future = new FutureTask<T>(task);
+    execute(future);
+    return future;
+  }
+
+  /**
+   * Hand off a task to the executor, if any.
+   *
+   * @param task The task.
+   */
+  private void execute(final FutureTask<?> task) {
+    if (executor != null) {
+      try {
+        executor.execute(task);
+      } catch (RejectedExecutionException ex) {
+        // saturated executor, the waiting thread will run it
+      }
+    }
+  }
+
+  /**
+   * Wait for a task to complete. A task that hasn't been started yet runs in the calling thread,
+   * so a parent task waiting on its children never starves a bounded executor.
+   *
+   * @param task The task.
+   * @return The task's result.
+   * @throws IOException If the task fails.
+   */
+  static <T> T await(final Future<T> task) throws IOException {
+    if (task instanceof RunnableFuture) {
+      // no-op if the task is running or done
+      ((RunnableFuture<T>) task).run();
+    }
+    try {
+      return task.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while resolving dependencies", ex);
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+}
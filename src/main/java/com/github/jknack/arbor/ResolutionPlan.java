@@ -0,0 +1,417 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.arbor;
+
+import static org.apache.commons.lang3.StringUtils.join;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.jknack.arbor.AbstractResolver.ResolvedRevision;
+
+/**
+ * The complete dependency graph of a resolution, built from metadata only. A plan knows which
+ * modules are already installed and which ones must be downloaded, so it can be printed (dry run)
+ * or installed: downloads run in parallel, largest first, modules are linked once all of them are
+ * in place and then saved, dependencies first. Other processes see a module only once it's saved
+ * with its dependencies.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+public class ResolutionPlan {
+
+  /**
+   * A module of the plan.
+   *
+   * @author edgar.espina
+   * @since 0.1.0
+   */
+  public static class Step {
+
+    /**
+     * Sort steps by module id, the order of the module locks.
+     */
+    static final Comparator<Step> LOCK_ORDER = new Comparator<Step>() {
+      @Override
+      public int compare(final Step s1, final Step s2) {
+        return s1.moduleId.toString().compareTo(s2.moduleId.toString());
+      }
+    };
+
+    /**
+     * Sort steps by estimated size, largest first.
+     */
+    static final Comparator<Step> LARGEST_FIRST = new Comparator<Step>() {
+      @Override
+      public int compare(final Step s1, final Step s2) {
+        long size1 = s1.getEstimatedSize();
+        long size2 = s2.getEstimatedSize();
+        return size1 < size2 ? 1 : size1 == size2 ? 0 : -1;
+      }
+    };
+
+    /**
+     * The module id.
+     */
+    private final ModuleId moduleId;
+
+    /**
+     * The resolver that will download the module or null if the module is installed.
+     */
+    private final AbstractResolver<?> resolver;
+
+    /**
+     * The resolved revision or null if the module is installed.
+     */
+    private final ResolvedRevision<?> revision;
+
+    /**
+     * The module, once installed.
+     */
+    private volatile Module module;
+
+    /**
+     * The dependencies of a module to download.
+     */
+    private List<ModuleId> requires = Collections.emptyList();
+
+    /**
+     * True once the plan starts downloading the module, false if another process installed it
+     * first.
+     */
+    private volatile boolean downloaded;
+
+    /**
+     * Creates a step for an installed module.
+     *
+     * @param module The installed module.
+     */
+    Step(final Module module) {
+      this.moduleId = module.getId();
+      this.module = module;
+      this.resolver = null;
+      this.revision = null;
+    }
+
+    /**
+     * Creates a step for a module to download.
+     *
+     * @param resolver The resolver that found the module.
+     * @param revision The resolved revision.
+     */
+    Step(final AbstractResolver<?> resolver, final ResolvedRevision<?> revision) {
+      this.moduleId = revision.moduleId;
+      this.resolver = resolver;
+      this.revision = revision;
+    }
+
+    public ModuleId getModuleId() {
+      return moduleId;
+    }
+
+    /**
+     * The name of the resolver that will download the module or null if the module is installed.
+     *
+     * @return The resolver's name or null.
+     */
+    public String getResolver() {
+      return resolver == null ? null : resolver.getName();
+    }
+
+    /**
+     * True if the module is installed (before the plan runs).
+     *
+     * @return True if the module is installed.
+     */
+    public boolean isInstalled() {
+      return resolver == null;
+    }
+
+    /**
+     * The estimated download size, zero for installed modules.
+     *
+     * @return The estimated download size in bytes.
+     */
+    public long getEstimatedSize() {
+      return resolver == null ? 0 : resolver.estimateSize(revision);
+    }
+
+    /**
+     * The dependencies of a module to download.
+     *
+     * @return The dependencies of a module to download.
+     */
+    public List<ModuleId> getRequires() {
+      return requires;
+    }
+
+    /**
+     * Set the dependencies of a module to download.
+     *
+     * @param requires The dependencies.
+     */
+    void setRequires(final List<ModuleId> requires) {
+      this.requires = requires;
+    }
+
+    /**
+     * The module or null if it hasn't been installed yet.
+     *
+     * @return The module or null.
+     */
+    Module getModule() {
+      return module;
+    }
+
+    /**
+     * The resolver that will download the module or null if the module is installed.
+     *
+     * @return The resolver or null.
+     */
+    AbstractResolver<?> resolver() {
+      return resolver;
+    }
+
+    /**
+     * The resolved revision or null if the module is installed.
+     *
+     * @return The resolved revision or null.
+     */
+    ResolvedRevision<?> revision() {
+      return revision;
+    }
+
+    @Override
+    public String toString() {
+      if (isInstalled()) {
+        return moduleId + " (installed)";
+      }
+      return moduleId + " (" + resolver.getName() + ", ~" + getEstimatedSize() / 1024 + "KB)";
+    }
+  }
+
+  /**
+   * The logging system.
+   */
+  private static final Logger logger = LoggerFactory.getLogger(ResolutionPlan.class);
+
+  /**
+   * The resolved ids of the direct dependencies.
+   */
+  private List<ModuleId> roots = Collections.emptyList();
+
+  /**
+   * The plan steps, in discovery order.
+   */
+  private final Map<ModuleId, Step> steps = new LinkedHashMap<ModuleId, Step>();
+
+  /**
+   * Add a step to the plan.
+   *
+   * @param step The step.
+   * @return True if the step was added, false if the plan already has the module.
+   */
+  synchronized boolean add(final Step step) {
+    if (steps.containsKey(step.moduleId)) {
+      return false;
+    }
+    steps.put(step.moduleId, step);
+    return true;
+  }
+
+  /**
+   * Set the resolved ids of the direct dependencies.
+   *
+   * @param roots The resolved ids of the direct dependencies.
+   */
+  void setRoots(final List<ModuleId> roots) {
+    this.roots = roots;
+  }
+
+  /**
+   * The resolved ids of the direct dependencies.
+   *
+   * @return The resolved ids of the direct dependencies.
+   */
+  public List<ModuleId> getRoots() {
+    return roots;
+  }
+
+  /**
+   * All the modules of the plan, in discovery order.
+   *
+   * @return All the modules of the plan.
+   */
+  public synchronized List<Step> getSteps() {
+    return new ArrayList<Step>(steps.values());
+  }
+
+  /**
+   * The modules to download, largest first.
+   *
+   * @return The modules to download.
+   */
+  public List<Step> getDownloads() {
+    List<Step> downloads = new ArrayList<Step>();
+    for (Step step : getSteps()) {
+      if (!step.isInstalled()) {
+        downloads.add(step);
+      }
+    }
+    Collections.sort(downloads, Step.LARGEST_FIRST);
+    return downloads;
+  }
+
+  /**
+   * Download, link and save the modules of the plan. The modules to download are locked (in
+   * module id order, like any other plan does) until they are saved.
+   *
+   * @param context The dependency context.
+   * @param maxDownloads The maximum number of concurrent downloads.
+   * @return The direct dependencies.
+   * @throws IOException If a module can't be installed.
+   */
+  List<Module> install(final DependencyContext context, final int maxDownloads)
+      throws IOException {
+    final Semaphore permits = new Semaphore(maxDownloads);
+    List<Step> downloads = getDownloads();
+    List<Step> ordered = new ArrayList<Step>(downloads);
+    Collections.sort(ordered, Step.LOCK_ORDER);
+    List<ModuleLock> locks = new ArrayList<ModuleLock>(ordered.size());
+    boolean success = false;
+    try {
+      for (Step step : ordered) {
+        ModuleLock lock = ModuleLock.acquire(context, step.moduleId);
+        // another process might have installed it while we were waiting
+        Module installed = context.get(step.moduleId);
+        if (installed == null) {
+          locks.add(lock);
+        } else {
+          logger.info("{} resolved from cache", step.moduleId);
+          step.module = installed;
+          lock.release();
+        }
+      }
+      List<Callable<Module>> tasks = new ArrayList<Callable<Module>>(downloads.size());
+      for (final Step step : downloads) {
+        if (step.module == null) {
+          tasks.add(new Callable<Module>() {
+            @Override
+            public Module call() throws Exception {
+              permits.acquire();
+              try {
+                step.downloaded = true;
+                step.module = step.resolver.download(context, step.revision);
+              } finally {
+                permits.release();
+              }
+              return step.module;
+            }
+          });
+        }
+      }
+      context.invokeAll(tasks);
+      // link
+      for (Step step : downloads) {
+        if (step.downloaded) {
+          for (ModuleId dependency : step.requires) {
+            step.module.add(step(dependency).module);
+          }
+        }
+      }
+      Set<ModuleId> saved = new HashSet<ModuleId>();
+      for (Step step : downloads) {
+        save(context, step, saved);
+      }
+      success = true;
+    } finally {
+      try {
+        if (!success) {
+          for (Step step : downloads) {
+            if (step.downloaded) {
+              step.resolver.cleanup(context, step.moduleId);
+            }
+          }
+        }
+      } finally {
+        for (ModuleLock lock : locks) {
+          lock.release();
+        }
+      }
+    }
+    List<Module> modules = new ArrayList<Module>(roots.size());
+    for (ModuleId root : roots) {
+      modules.add(step(root).module);
+    }
+    return modules;
+  }
+
+  /**
+   * Save a downloaded module after its dependencies, so nobody sees a module before its
+   * dependencies (but in a dependency cycle).
+   *
+   * @param context The dependency context.
+   * @param step The step.
+   * @param saved The modules saved so far.
+   * @throws IOException If a module can't be saved.
+   */
+  private void save(final DependencyContext context, final Step step, final Set<ModuleId> saved)
+      throws IOException {
+    if (!step.downloaded || !saved.add(step.moduleId)) {
+      return;
+    }
+    for (ModuleId dependency : step.requires) {
+      save(context, step(dependency), saved);
+    }
+    step.module.save(context.getIndex());
+    context.put(step.moduleId, step.module);
+  }
+
+  /**
+   * Find a step.
+   *
+   * @param moduleId The module id.
+   * @return The step.
+   */
+  private synchronized Step step(final ModuleId moduleId) {
+    return steps.get(moduleId);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buffer = new StringBuilder();
+    for (Step step : getSteps()) {
+      buffer.append(step);
+      if (step.requires.size() > 0) {
+        buffer.append(" -> ").append(join(step.requires, ", "));
+      }
+      buffer.append("\n");
+    }
+    return buffer.toString().trim();
+  }
+}
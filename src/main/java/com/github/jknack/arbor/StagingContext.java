@@ -0,0 +1,106 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.arbor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link DependencyContext} whose home for one module is a staging directory. Resolvers write
+ * into it and the module is moved into place once it's complete.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+class StagingContext implements DependencyContext {
+
+  /**
+   * The real context.
+   */
+  private final DependencyContext context;
+
+  /**
+   * The module being staged.
+   */
+  private final ModuleId moduleId;
+
+  /**
+   * The staging directory.
+   */
+  private final File staging;
+
+  /**
+   * Creates a new {@link StagingContext}.
+   *
+   * @param context The real context.
+   * @param moduleId The module being staged.
+   * @param staging The staging directory.
+   */
+  public StagingContext(final DependencyContext context, final ModuleId moduleId,
+      final File staging) {
+    this.context = context;
+    this.moduleId = moduleId;
+    this.staging = staging;
+  }
+
+  @Override
+  public void put(final ModuleId moduleId, final Module module) {
+    context.put(moduleId, module);
+  }
+
+  @Override
+  public File moduleRoot(final ModuleId moduleId) {
+    return context.moduleRoot(moduleId);
+  }
+
+  @Override
+  public File moduleHome(final ModuleId moduleId) {
+    return this.moduleId.equals(moduleId) ? staging : context.moduleHome(moduleId);
+  }
+
+  @Override
+  public File getBaseDir() {
+    return context.getBaseDir();
+  }
+
+  @Override
+  public Module get(final ModuleId moduleId) {
+    return context.get(moduleId);
+  }
+
+  @Override
+  public ModuleIndex getIndex() {
+    return context.getIndex();
+  }
+
+  @Override
+  public Module resolve(final ModuleId moduleId, final Callable<Module> resolution)
+      throws IOException {
+    return context.resolve(moduleId, resolution);
+  }
+
+  @Override
+  public <T> List<T> invokeAll(final List<Callable<T>> tasks) throws IOException {
+    return context.invokeAll(tasks);
+  }
+
+  @Override
+  public <T> Future<T> submit(final Callable<T> task) {
+    return context.submit(task);
+  }
+}
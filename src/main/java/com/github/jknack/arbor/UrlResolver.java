@@ -21,14 +21,20 @@ import static org.apache.http.client.fluent.Request.Get;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import com.github.jknack.arbor.io.Digests;
+
 public class UrlResolver extends AbstractResolver<URI> {
 
   @Override
@@ -63,18 +69,29 @@ public class UrlResolver extends AbstractResolver<URI> {
   }
 
   @Override
-  protected Module newModule(final DependencyContext context, final URI uri,
+  protected Module download(final DependencyContext context, final URI uri,
       final ModuleId moduleId) throws IOException {
     String filename = FilenameUtils.getName(uri.toString());
     List<String> location = new ArrayList<String>(Arrays.asList(StringUtils.split(uri.getHost(),
         ".")));
     Collections.reverse(location);
+    // a module without a version gets a home of its own under the host directory, the URL
+    // can't be a directory name
     File moduleHome = moduleId.getRevision().equals(uri.toString()) ? new File(
-        context.getBaseDir(), join(location, File.separator)) : context.moduleHome(moduleId);
+        context.getBaseDir(), join(location, File.separator) + File.separator
+            + moduleId.getName() + File.separator + Digests.sha256(uri.toString()))
+        : context.moduleHome(moduleId);
     moduleHome.mkdirs();
     File file = new File(moduleHome, filename);
-    logger.debug("GET {}", uri);
-    Get(uri).execute().saveContent(file);
+    // not the staging directory of AbstractResolver#download, stage the file instead
+    File staging = new File(moduleHome, "." + filename + ".staging-" + UUID.randomUUID());
+    try {
+      logger.debug("GET {}", uri);
+      getTransport().execute(Get(uri)).saveContent(staging);
+      Files.move(staging.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      FileUtils.deleteQuietly(staging);
+    }
     return new Module(moduleId, file.getParentFile(), filename);
   }
 
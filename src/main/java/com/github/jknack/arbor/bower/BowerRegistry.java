@@ -0,0 +1,168 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.arbor.bower;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * The Bower package list as two sorted arrays: names and URLs. A lookup is a binary search, there
+ * is no object per package.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+final class BowerRegistry {
+
+  /**
+   * Sort name/url pairs by name.
+   */
+  private static final Comparator<String[]> BY_NAME = new Comparator<String[]>() {
+    @Override
+    public int compare(final String[] p1, final String[] p2) {
+      return p1[0].compareTo(p2[0]);
+    }
+  };
+
+  /**
+   * The JSON factory.
+   */
+  private static final JsonFactory jsonFactory = new JsonFactory();
+
+  /**
+   * The package names, sorted.
+   */
+  private final String[] names;
+
+  /**
+   * The package URLs, in the same order than names.
+   */
+  private final String[] urls;
+
+  /**
+   * Creates a new {@link BowerRegistry}.
+   *
+   * @param names The package names, sorted.
+   * @param urls The package URLs.
+   */
+  private BowerRegistry(final String[] names, final String[] urls) {
+    this.names = names;
+    this.urls = urls;
+  }
+
+  /**
+   * Find the URL of a package.
+   *
+   * @param name The package's name.
+   * @return The package URL or null.
+   */
+  public String find(final String name) {
+    int index = Arrays.binarySearch(names, name);
+    return index < 0 ? null : urls[index];
+  }
+
+  /**
+   * The number of packages.
+   *
+   * @return The number of packages.
+   */
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * Parse the package list, see {@link #parse(InputStream)}.
+   *
+   * @param json The package list.
+   * @return The registry.
+   * @throws IOException If the package list isn't valid.
+   */
+  public static BowerRegistry parse(final String json) throws IOException {
+    return parse(jsonFactory.createParser(json));
+  }
+
+  /**
+   * Parse the package list: <code>[{"name": "...", "url": "..."}, ...]</code>, as it is read.
+   * Other attributes are skipped.
+   *
+   * @param json The package list.
+   * @return The registry.
+   * @throws IOException If the package list can't be read or isn't valid.
+   */
+  public static BowerRegistry parse(final InputStream json) throws IOException {
+    return parse(jsonFactory.createParser(json));
+  }
+
+  /**
+   * Parse the package list and close the parser.
+   *
+   * @param parser The JSON parser.
+   * @return The registry.
+   * @throws IOException If the package list can't be read or isn't valid.
+   */
+  private static BowerRegistry parse(final JsonParser parser) throws IOException {
+    List<String[]> packages = new ArrayList<String[]>();
+    try {
+      if (parser.nextToken() != JsonToken.START_ARRAY) {
+        throw new JsonParseException("Expected a package list", parser.getCurrentLocation());
+      }
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+        String name = null;
+        String url = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String field = parser.getCurrentName();
+          JsonToken value = parser.nextToken();
+          if ("name".equals(field) && value == JsonToken.VALUE_STRING) {
+            name = parser.getText();
+          } else if ("url".equals(field) && value == JsonToken.VALUE_STRING) {
+            url = parser.getText();
+          } else {
+            parser.skipChildren();
+          }
+        }
+        if (name != null && url != null) {
+          packages.add(new String[]{name, url });
+        }
+      }
+    } finally {
+      parser.close();
+    }
+    // stable: the last duplicated wins
+    Collections.sort(packages, BY_NAME);
+    List<String> names = new ArrayList<String>(packages.size());
+    List<String> urls = new ArrayList<String>(packages.size());
+    for (String[] entry : packages) {
+      int last = names.size() - 1;
+      if (last >= 0 && names.get(last).equals(entry[0])) {
+        urls.set(last, entry[1]);
+      } else {
+        names.add(entry[0]);
+        urls.add(entry[1]);
+      }
+    }
+    return new BowerRegistry(names.toArray(new String[names.size()]),
+        urls.toArray(new String[urls.size()]));
+  }
+}
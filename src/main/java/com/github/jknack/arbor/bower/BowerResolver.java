@@ -15,15 +15,13 @@
 package com.github.jknack.arbor.bower;
 
 import static org.apache.commons.lang3.StringUtils.isEmpty;
-import static org.apache.http.client.fluent.Request.Get;
+import static org.apache.commons.lang3.Validate.isTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 
 import org.apache.commons.io.FileUtils;
 
@@ -36,79 +34,189 @@ import com.github.jknack.arbor.PackageJson;
 import com.github.jknack.arbor.UnresolvedDependencyException;
 import com.github.jknack.arbor.github.GitHub;
 import com.github.jknack.arbor.github.GitHubRepository;
+import com.github.jknack.arbor.io.HttpTransport;
+import com.github.jknack.arbor.io.HttpTransport.ContentHandler;
 
-public class BowerResolver extends AbstractResolver<GitHubRepository> {
+public class BowerResolver extends AbstractResolver<BowerResolver.BowerPackage> {
+
+  /**
+   * A Bower package: a GitHub repository and its descriptor at the resolved revision.
+   *
+   * @author edgar.espina
+   * @since 0.1.0
+   */
+  static class BowerPackage {
+    /**
+     * The GitHub repository.
+     */
+    final GitHubRepository repository;
+
+    /**
+     * The descriptor file name: component.json or package.json.
+     */
+    final String descriptorName;
+
+    /**
+     * The descriptor content.
+     */
+    final String descriptor;
+
+    /**
+     * The parsed descriptor.
+     */
+    final PackageJson packageJson;
+
+    /**
+     * Creates a new {@link BowerPackage}.
+     *
+     * @param repository The GitHub repository.
+     * @param descriptorName The descriptor file name.
+     * @param descriptor The descriptor content.
+     * @throws IOException If the descriptor can't be parsed.
+     */
+    BowerPackage(final GitHubRepository repository, final String descriptorName,
+        final String descriptor) throws IOException {
+      this.repository = repository;
+      this.descriptorName = descriptorName;
+      this.descriptor = descriptor;
+      this.packageJson = JsonParser.read(descriptor, PackageJson.class);
+    }
+
+    @Override
+    public String toString() {
+      return repository.toString();
+    }
+  }
+
+  /**
+   * The bower package list.
+   */
+  private static final String REGISTRY = "http://bower.herokuapp.com/packages";
 
   private GitHub gitHub = new GitHub();
 
+  /**
+   * The package list time to live in seconds.
+   */
+  private volatile long registryTtl = 3600;
+
+  /**
+   * The package list.
+   */
+  private BowerRegistry registry;
+
+  /**
+   * When the package list was loaded.
+   */
+  private long registryDate;
+
+  @Override
+  public void setTransport(final HttpTransport transport) {
+    super.setTransport(transport);
+    gitHub.setTransport(transport);
+  }
+
+  /**
+   * Download each package once, as a tarball, and read its descriptor and files from it. It saves
+   * a request per file, but the whole repository is downloaded.
+   *
+   * @param archiveMode True for archive mode.
+   */
+  public void setArchiveMode(final boolean archiveMode) {
+    gitHub.setArchiveMode(archiveMode);
+  }
+
   @Override
   public String getName() {
     return "bower";
   }
 
   @Override
-  protected Module newModule(final DependencyContext context, final GitHubRepository repository,
+  protected Module download(final DependencyContext context, final BowerPackage bowerPackage,
       final ModuleId moduleId) throws IOException {
-    String descriptorName = "component.json";
-    String descriptor = repository.get(moduleId.getRevision(), descriptorName);
-    if (isEmpty(descriptor)) {
-      // fallback to package.json
-      descriptorName = "package.json";
-      descriptor = repository.get(moduleId.getRevision(), descriptorName);
-    }
-    if (isEmpty(descriptor)) {
-      throw new UnresolvedDependencyException(moduleId);
-    }
-    PackageJson packageJson = JsonParser.read(descriptor, PackageJson.class);
     File moduleHome = context.moduleHome(moduleId);
-    String mainJs = packageJson.resolveMain(moduleHome);
-    String mainJsContent = repository.get(moduleId.getRevision(), mainJs);
+    String mainJs = bowerPackage.packageJson.resolveMain(moduleHome);
+    String mainJsContent = bowerPackage.repository.get(moduleId.getRevision(), mainJs);
     if (isEmpty(mainJsContent)) {
       throw new UnresolvedDependencyException(moduleId);
     }
     // save descriptor and content
-    FileUtils.write(new File(moduleHome, descriptorName), descriptor);
+    FileUtils.write(new File(moduleHome, bowerPackage.descriptorName), bowerPackage.descriptor);
     FileUtils.write(new File(moduleHome, mainJs), mainJsContent);
 
-    Module module = new Module(moduleId, moduleHome, mainJs);
-    // find out dependencies
-    for (Entry<String, String> entry : packageJson.getDependencies().entrySet()) {
-      Module dependency = resolve(context, new ModuleId(entry.getKey(), entry.getValue()));
-      module.add(dependency);
-    }
-    return module;
+    return new Module(moduleId, moduleHome, mainJs);
+  }
+
+  @Override
+  protected List<ModuleId> dependencies(final BowerPackage bowerPackage,
+      final ModuleId moduleId) {
+    return moduleIds(bowerPackage.packageJson.getDependencies());
+  }
+
+  @Override
+  protected String source(final BowerPackage bowerPackage, final ModuleId moduleId) {
+    return "https://github.com/" + bowerPackage.repository.getId();
   }
 
   @Override
-  protected ResolvedRevision<GitHubRepository> doResolve(final ModuleId moduleId)
+  protected ResolvedRevision<BowerPackage> doResolve(final ModuleId moduleId)
       throws IOException {
-    Map<String, String> packages = getPackages();
-    String url = packages.get(moduleId.getName());
+    String url = registry().find(moduleId.getName());
     if (isEmpty(url)) {
       throw new UnresolvedDependencyException(moduleId);
     }
     GitHubRepository repository = gitHub.createRepository(URI.create(url));
     String revisionId = repository.resolveVersion(moduleId.getRevision());
-    return new ResolvedRevision<GitHubRepository>(repository, new ModuleId(moduleId.getName(),
-        revisionId));
+    String descriptorName = "component.json";
+    String descriptor = repository.get(revisionId, descriptorName);
+    if (isEmpty(descriptor)) {
+      // fallback to package.json
+      descriptorName = "package.json";
+      descriptor = repository.get(revisionId, descriptorName);
+    }
+    if (isEmpty(descriptor)) {
+      throw new UnresolvedDependencyException(moduleId);
+    }
+    return new ResolvedRevision<BowerPackage>(new BowerPackage(repository, descriptorName,
+        descriptor), new ModuleId(moduleId.getName(), revisionId));
+  }
+
+  /**
+   * Set how long the package list is reused, in memory and on disk, before asking the registry
+   * again. The registry doesn't set a max-age on its own.
+   *
+   * @param seconds The package list time to live in seconds.
+   */
+  public void setRegistryTtl(final long seconds) {
+    isTrue(seconds >= 0, "The seconds must be positive.");
+    this.registryTtl = seconds;
   }
 
   /**
-   * Load all the bower packages.
+   * The bower package list, downloaded once per time to live.
    *
-   * @return
-   * @throws IOException
+   * @return The bower package list.
+   * @throws IOException If the package list can't be downloaded.
    */
-  @SuppressWarnings("unchecked")
-  private Map<String, String> getPackages() throws IOException {
-    String uri = "http://bower.herokuapp.com/packages";
-    logger.debug("GET {}", uri);
-    String json = Get(uri).execute().returnContent().asString();
-    List<Map<String, String>> packageList = JsonParser.read(json, List.class);
-    Map<String, String> packages = new HashMap<String, String>();
-    for (Map<String, String> packageEntry : packageList) {
-      packages.put(packageEntry.get("name"), packageEntry.get("url"));
+  private synchronized BowerRegistry registry() throws IOException {
+    long now = System.currentTimeMillis();
+    if (registry == null || now - registryDate >= registryTtl * 1000) {
+      logger.debug("GET {}", REGISTRY);
+      HttpTransport transport = getTransport();
+      if (transport.getCache() == null) {
+        // nothing to keep on disk, parse the package list as it arrives
+        registry = transport.download(REGISTRY, new ContentHandler<BowerRegistry>() {
+          @Override
+          public BowerRegistry handle(final InputStream content) throws IOException {
+            return BowerRegistry.parse(content);
+          }
+        });
+      } else {
+        registry = BowerRegistry.parse(transport.get(REGISTRY, registryTtl).asString());
+      }
+      registryDate = now;
+      logger.debug("{} bower packages", registry.size());
     }
-    return packages;
+    return registry;
   }
 }
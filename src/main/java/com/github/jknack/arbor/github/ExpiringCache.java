@@ -0,0 +1,191 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.arbor.github;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A thread-safe, least recently used cache whose entries expire. Concurrent loads of the same key
+ * are collapsed into one.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ * @param <V> The value type.
+ */
+final class ExpiringCache<V> {
+
+  /**
+   * A cached value.
+   *
+   * @author edgar.espina
+   * @since 0.1.0
+   * @param <V> The value type.
+   */
+  private static class Entry<V> {
+    /**
+     * The value, loaded by the first caller.
+     */
+    private final FutureTask<V> value;
+
+    /**
+     * When the entry expires.
+     */
+    private final long expires;
+
+    /**
+     * Creates a new {@link Entry}.
+     *
+     * @param loader The value loader.
+     * @param expires When the entry expires.
+     */
+    public Entry(final Callable<V> loader, final long expires) {
+      this.value = new FutureTask<V>(loader);
+      this.expires = expires;
+    }
+  }
+
+  /**
+   * The entries, in access order.
+   */
+  private final Map<String, Entry<V>> entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f,
+      true) {
+    /**
+     * Default serial UID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, Entry<V>> eldest) {
+      return size() > maxSize;
+    }
+  };
+
+  /**
+   * The maximum number of entries.
+   */
+  private volatile int maxSize;
+
+  /**
+   * The time to live of an entry in millis.
+   */
+  private volatile long ttl;
+
+  /**
+   * Creates a new {@link ExpiringCache}.
+   *
+   * @param maxSize The maximum number of entries.
+   * @param ttl The time to live of an entry in millis.
+   */
+  public ExpiringCache(final int maxSize, final long ttl) {
+    setMaxSize(maxSize);
+    setTtl(ttl);
+  }
+
+  /**
+   * Get a value, loading it if it's missing or expired.
+   *
+   * @param key The key.
+   * @param loader The value loader.
+   * @return The value.
+   * @throws IOException If the value can't be loaded.
+   */
+  public V get(final String key, final Callable<V> loader) throws IOException {
+    long now = System.currentTimeMillis();
+    Entry<V> entry;
+    boolean owner = false;
+    synchronized (entries) {
+      entry = entries.get(key);
+      if (entry == null || entry.expires <= now) {
+        entry = new Entry<V>(loader, now + ttl);
+        entries.put(key, entry);
+        owner = true;
+      }
+    }
+    if (owner) {
+      entry.value.run();
+    }
+    try {
+      return entry.value.get();
+    } catch (ExecutionException ex) {
+      synchronized (entries) {
+        if (entries.get(key) == entry) {
+          entries.remove(key);
+        }
+      }
+      Throwable cause = ex.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while loading: " + key);
+    }
+  }
+
+  /**
+   * Set the maximum number of entries.
+   *
+   * @param maxSize The maximum number of entries.
+   */
+  public void setMaxSize(final int maxSize) {
+    isTrue(maxSize > 0, "The maxSize must be greater than zero.");
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Set the time to live of an entry.
+   *
+   * @param ttl The time to live of an entry in millis.
+   */
+  public void setTtl(final long ttl) {
+    isTrue(ttl >= 0, "The ttl must be positive.");
+    this.ttl = ttl;
+  }
+
+  /**
+   * Remove all the entries.
+   */
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  /**
+   * The number of entries.
+   *
+   * @return The number of entries.
+   */
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+}
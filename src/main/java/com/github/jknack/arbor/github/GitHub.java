@@ -14,26 +14,23 @@
  */
 package com.github.jknack.arbor.github;
 
-import static org.apache.http.client.fluent.Request.Get;
+import static org.apache.commons.lang3.Validate.notNull;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.HttpResponse;
-import org.apache.http.StatusLine;
-import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpResponseException;
-import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +38,9 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jknack.arbor.io.ArtifactStore;
+import com.github.jknack.arbor.io.HttpContent;
+import com.github.jknack.arbor.io.HttpTransport;
 
 public class GitHub {
 
@@ -57,7 +57,33 @@ public class GitHub {
 
   private URI uri;
 
-  private Map<String, GitHubRepository> repoCache = new HashMap<String, GitHubRepository>();
+  /**
+   * Search results, shared by all the instances: search URI to repository id (or an empty string
+   * if nothing was found).
+   */
+  private static final ExpiringCache<String> searchCache = new ExpiringCache<String>(1024,
+      TimeUnit.MINUTES.toMillis(30));
+
+  /**
+   * Tags, shared by all the instances: tags URI to tags.
+   */
+  private static final ExpiringCache<List<GitHubTag>> tagCache =
+      new ExpiringCache<List<GitHubTag>>(1024, TimeUnit.MINUTES.toMillis(30));
+
+  private HttpTransport transport = HttpTransport.getDefault();
+
+  private boolean archiveMode;
+
+  /**
+   * The artifact store or null.
+   */
+  private ArtifactStore store;
+
+  /**
+   * Rate limiters by API host, shared by all the instances.
+   */
+  private static final ConcurrentMap<String, RateLimiter> rateLimiters =
+      new ConcurrentHashMap<String, RateLimiter>();
 
   public GitHub(final URI uri) {
     objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
@@ -68,6 +94,58 @@ public class GitHub {
     this(URI.create("https://api.github.com/"));
   }
 
+  /**
+   * Set the HTTP transport used for GitHub requests, including the repositories created or found
+   * from now on.
+   *
+   * @param transport The HTTP transport. Required.
+   */
+  public void setTransport(final HttpTransport transport) {
+    this.transport = notNull(transport, "The transport is required.");
+  }
+
+  /**
+   * Set the maximum number of search results and tag lists kept in memory. The cache is shared by
+   * all the {@link GitHub} instances. Responses are persisted on disk too if the HTTP transport has
+   * a cache, see {@link HttpTransport#setCache(com.github.jknack.arbor.io.HttpCache)}.
+   *
+   * @param maxSize The maximum number of search results and tag lists.
+   */
+  public static void setCacheSize(final int maxSize) {
+    searchCache.setMaxSize(maxSize);
+    tagCache.setMaxSize(maxSize);
+  }
+
+  /**
+   * Set how long search results and tag lists are kept in memory.
+   *
+   * @param ttl The time to live.
+   * @param unit The time unit.
+   */
+  public static void setCacheTtl(final long ttl, final TimeUnit unit) {
+    searchCache.setTtl(unit.toMillis(ttl));
+    tagCache.setTtl(unit.toMillis(ttl));
+  }
+
+  /**
+   * Read the files of the repositories created or found from now on from their tarballs, see
+   * {@link GitHubRepository#setArchiveMode(boolean)}.
+   *
+   * @param archiveMode True for archive mode.
+   */
+  public void setArchiveMode(final boolean archiveMode) {
+    this.archiveMode = archiveMode;
+  }
+
+  /**
+   * Set the artifact store of the repositories created or found from now on.
+   *
+   * @param store The artifact store or null for no store.
+   */
+  public void setStore(final ArtifactStore store) {
+    this.store = store;
+  }
+
   public GitHubRepository createRepository(final URI uri) throws IOException {
     String[] token = StringUtils.split(uri.getPath(), "/");
     String owner = token[0];
@@ -77,31 +155,39 @@ public class GitHub {
       repo = repo.substring(0, repo.length() - suffix.length());
     }
     GitHubRepository repository = new GitHubRepository(owner, repo);
+    repository.setTransport(transport);
+    repository.setArchiveMode(archiveMode);
+    repository.setStore(store);
     repository.setTags(tags(owner, repo));
     return repository;
   }
 
   public GitHubRepository findRepository(final String term) throws IOException {
     try {
-      GitHubRepository repository = repoCache.get(term);
-      if (repository == null) {
-        URI searchURI = new URIBuilder(uri).setPath(SEARCH_PATH + term)
-            .addParameter("language", "JavaScript").build();
-        logger.debug("GET {}", searchURI);
-
-        String json = Get(searchURI)
-            .execute().handleResponse(responseHandler());
-        JsonNode node = objectMapper.readTree(json).get("repositories");
-        JavaType type = objectMapper.getTypeFactory().constructCollectionType(LinkedList.class,
-            GitHubRepository.class);
-        LinkedList<GitHubRepository> repositories = objectMapper.readValue(node.traverse(), type);
-        if (repositories.size() == 0) {
-          return null;
+      final URI searchURI = new URIBuilder(uri).setPath(SEARCH_PATH + term)
+          .addParameter("language", "JavaScript").build();
+      String id = searchCache.get(searchURI.toString(), new Callable<String>() {
+        @Override
+        public String call() throws IOException {
+          logger.debug("GET {}", searchURI);
+          String json = json(get(searchURI));
+          JsonNode node = objectMapper.readTree(json).get("repositories");
+          JavaType type = objectMapper.getTypeFactory().constructCollectionType(
+              LinkedList.class, GitHubRepository.class);
+          LinkedList<GitHubRepository> repositories =
+              objectMapper.readValue(node.traverse(), type);
+          return repositories.size() == 0 ? "" : repositories.getFirst().getId();
         }
-        repository = repositories.getFirst();
-        repository.setTags(tags(repository.getOwner(), repository.getName()));
-        repoCache.put(term, repository);
+      });
+      if (id.length() == 0) {
+        return null;
       }
+      String[] token = StringUtils.split(id, "/");
+      GitHubRepository repository = new GitHubRepository(token[0], token[1]);
+      repository.setTransport(transport);
+      repository.setArchiveMode(archiveMode);
+      repository.setStore(store);
+      repository.setTags(tags(token[0], token[1]));
       return repository;
     } catch (URISyntaxException ex) {
       throw new IOException("Invalid URI", ex);
@@ -110,36 +196,52 @@ public class GitHub {
 
   private List<GitHubTag> tags(final String user, final String repository) throws IOException {
     try {
-      URI tagsURI = new URIBuilder(uri).setPath(String.format(TAGS, user, repository)).build();
-      logger.debug("GET {}", tagsURI);
-
-      String json = Get(tagsURI)
-          .execute().handleResponse(responseHandler());
-      JavaType tagType = objectMapper.getTypeFactory().constructCollectionType(ArrayList.class,
-          GitHubTag.class);
-      List<GitHubTag> tags = objectMapper.readValue(json, tagType);
-      Collections.sort(tags, GitHubTag.DESC);
-      return tags;
+      final URI tagsURI = new URIBuilder(uri).setPath(String.format(TAGS, user, repository))
+          .build();
+      return tagCache.get(tagsURI.toString(), new Callable<List<GitHubTag>>() {
+        @Override
+        public List<GitHubTag> call() throws IOException {
+          logger.debug("GET {}", tagsURI);
+          String json = json(get(tagsURI));
+          JavaType tagType = objectMapper.getTypeFactory().constructCollectionType(
+              ArrayList.class, GitHubTag.class);
+          // GitHubRepository#setTags sorts them
+          return Collections.unmodifiableList(objectMapper.<List<GitHubTag>> readValue(json,
+              tagType));
+        }
+      });
     } catch (URISyntaxException ex) {
       throw new IOException("Invalid URI", ex);
     }
   }
 
-  private ResponseHandler<String> responseHandler() {
-    return new ResponseHandler<String>() {
-      @Override
-      public String handleResponse(final HttpResponse response) throws ClientProtocolException,
-          IOException {
-        String json = EntityUtils.toString(response.getEntity());
-        StatusLine statusLine = response.getStatusLine();
-        if (statusLine.getStatusCode() >= 300) {
-          JsonNode node = objectMapper.readTree(json).get("message");
-          String message = statusLine.getReasonPhrase() + "(" + statusLine.getStatusCode() + ")"
-              + ": " + node.asText();
-          throw new HttpResponseException(statusLine.getStatusCode(), message);
-        }
-        return json;
+  /**
+   * GET an API resource, within the rate limit of the API host.
+   *
+   * @param resource The resource URI.
+   * @return The resource content.
+   * @throws IOException If the request fails.
+   */
+  private HttpContent get(final URI resource) throws IOException {
+    RateLimiter rateLimiter = rateLimiters.get(uri.getHost());
+    if (rateLimiter == null) {
+      RateLimiter newRateLimiter = new RateLimiter();
+      rateLimiter = rateLimiters.putIfAbsent(uri.getHost(), newRateLimiter);
+      if (rateLimiter == null) {
+        rateLimiter = newRateLimiter;
       }
-    };
+    }
+    return rateLimiter.get(transport, resource.toString());
+  }
+
+  private String json(final HttpContent content) throws IOException {
+    String json = content.getBody();
+    if (!content.isSuccess()) {
+      JsonNode node = objectMapper.readTree(json).get("message");
+      String message = content.getReasonPhrase() + "(" + content.getStatusCode() + ")"
+          + ": " + node.asText();
+      throw new HttpResponseException(content.getStatusCode(), message);
+    }
+    return json;
   }
 }
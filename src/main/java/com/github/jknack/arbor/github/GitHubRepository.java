@@ -15,22 +15,30 @@
 package com.github.jknack.arbor.github;
 
 import static org.apache.commons.lang3.StringUtils.join;
-import static org.apache.http.client.fluent.Request.Get;
+import static org.apache.commons.lang3.Validate.notNull;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
-import org.apache.http.HttpResponse;
-import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.ResponseHandler;
-import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.github.jknack.arbor.UnresolvedDependencyException;
+import com.github.jknack.arbor.io.Archive;
+import com.github.jknack.arbor.io.ArtifactStore;
+import com.github.jknack.arbor.io.HttpContent;
+import com.github.jknack.arbor.io.HttpTransport;
+import com.github.jknack.arbor.io.HttpTransport.ContentHandler;
 import com.github.jknack.semver.Semver;
+import com.github.jknack.semver.VersionList;
 
 public class GitHubRepository {
   /**
@@ -47,6 +55,23 @@ public class GitHubRepository {
 
   private List<GitHubTag> tags;
 
+  private VersionList versions;
+
+  private HttpTransport transport = HttpTransport.getDefault();
+
+  private boolean archiveMode;
+
+  /**
+   * The artifact store or null.
+   */
+  private ArtifactStore store;
+
+  /**
+   * Tarballs read in archive mode, by version.
+   */
+  private final ExpiringCache<Archive> archives =
+      new ExpiringCache<Archive>(2, Long.MAX_VALUE / 2);
+
   public GitHubRepository(final String owner, final String name) {
     this.owner = owner;
     this.name = name;
@@ -55,6 +80,41 @@ public class GitHubRepository {
   public GitHubRepository() {
   }
 
+  /**
+   * Set the HTTP transport used for downloading files of this repository.
+   *
+   * @param transport The HTTP transport. Required.
+   */
+  @JsonIgnore
+  public void setTransport(final HttpTransport transport) {
+    this.transport = notNull(transport, "The transport is required.");
+  }
+
+  /**
+   * In archive mode the tarball of a version is downloaded once and {@link #get(String, String)}
+   * reads files from it, instead of sending a request per file.
+   *
+   * @param archiveMode True for archive mode.
+   */
+  @JsonIgnore
+  public void setArchiveMode(final boolean archiveMode) {
+    this.archiveMode = archiveMode;
+  }
+
+  public boolean isArchiveMode() {
+    return archiveMode;
+  }
+
+  /**
+   * Set the artifact store of the tarballs, see {@link #extract(String, File)}.
+   *
+   * @param store The artifact store or null for no store.
+   */
+  @JsonIgnore
+  public void setStore(final ArtifactStore store) {
+    this.store = store;
+  }
+
   public String getName() {
     return name;
   }
@@ -72,29 +132,67 @@ public class GitHubRepository {
     return getId();
   }
 
-  public File tarball(final String version) throws IOException {
-    String uri = String.format("https://github.com/%s/%s/archive/%s.tar.gz", owner, name, version);
+  /**
+   * Download and extract the tarball of a version, as it arrives. The tarball goes through the
+   * artifact store, if any.
+   *
+   * @param version The version.
+   * @param dir The destination directory.
+   * @throws IOException If the tarball can't be downloaded or extracted.
+   */
+  public void extract(final String version, final File dir) throws IOException {
+    String uri = tarball(version);
     logger.debug("GET {}", uri);
-    File tarball = File.createTempFile(name + "-" + version, ".tar.gz");
-    Get(uri).execute().saveContent(tarball);
-    return tarball;
+    if (store == null) {
+      transport.extract(uri, dir);
+    } else {
+      store.extract(transport, uri, dir);
+    }
   }
 
-  public String get(final String version, final String path) throws IOException {
-    String uri = String.format("https://raw.github.com/%s/%s/%s/%s", owner, name, version, path);
-    logger.debug("GET {}", uri);
-    return Get(uri).execute().handleResponse(new ResponseHandler<String>() {
+  /**
+   * Download the tarball of a version into memory. The tarball is downloaded once.
+   *
+   * @param version The version.
+   * @return The tarball's files.
+   * @throws IOException If the tarball can't be downloaded.
+   */
+  public Archive archive(final String version) throws IOException {
+    return archives.get(version, new Callable<Archive>() {
       @Override
-      public String handleResponse(final HttpResponse response) throws ClientProtocolException,
-          IOException {
-        if (response.getStatusLine().getStatusCode() >= 300) {
-          return null;
-        }
-        return EntityUtils.toString(response.getEntity());
+      public Archive call() throws IOException {
+        String uri = tarball(version);
+        logger.debug("GET {}", uri);
+        return transport.download(uri, new ContentHandler<Archive>() {
+          @Override
+          public Archive handle(final InputStream content) throws IOException {
+            return Archive.read(content);
+          }
+        });
       }
     });
   }
 
+  /**
+   * The tarball URI of a version.
+   *
+   * @param version The version.
+   * @return The tarball URI.
+   */
+  private String tarball(final String version) {
+    return String.format("https://github.com/%s/%s/archive/%s.tar.gz", owner, name, version);
+  }
+
+  public String get(final String version, final String path) throws IOException {
+    if (archiveMode) {
+      return archive(version).getString(path);
+    }
+    String uri = String.format("https://raw.github.com/%s/%s/%s/%s", owner, name, version, path);
+    logger.debug("GET {}", uri);
+    HttpContent content = transport.get(uri);
+    return content.isSuccess() ? content.getBody() : null;
+  }
+
   public String resolveVersion(final String version) throws IOException {
     try {
       Semver expression = Semver.create(version);
@@ -107,15 +205,9 @@ public class GitHubRepository {
     if (Semver.LATEST.text().equals(version)) {
       return tags.size() == 0 ? "master" : tags.get(0).getName();
     }
-    Semver expr = Semver.create(version);
-    for (GitHubTag candidate : tags) {
-      try {
-        if (expr.matches(candidate.getName())) {
-          return candidate.getName();
-        }
-      } catch (IllegalArgumentException ex) {
-        break;
-      }
+    String candidate = versions.maxSatisfying(version);
+    if (candidate != null) {
+      return candidate;
     }
     throw new UnresolvedDependencyException("No matches found for: " + name + "@" + version
         + " in: [" + join(tags, ", ") + "]");
@@ -126,6 +218,16 @@ public class GitHubRepository {
   }
 
   /* public */void setTags(final List<GitHubTag> tags) {
-    this.tags = tags;
+    Map<String, GitHubTag> tagsByName = new LinkedHashMap<String, GitHubTag>();
+    for (GitHubTag tag : tags) {
+      tagsByName.put(tag.getName(), tag);
+    }
+    // parse each tag once and keep them in descending order
+    this.versions = new VersionList(tagsByName.keySet());
+    List<GitHubTag> sorted = new ArrayList<GitHubTag>(tagsByName.size());
+    for (String name : versions) {
+      sorted.add(tagsByName.get(name));
+    }
+    this.tags = sorted;
   }
 }
@@ -0,0 +1,319 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.arbor.github;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.jknack.arbor.io.HttpContent;
+import com.github.jknack.arbor.io.HttpTransport;
+
+/**
+ * Keeps GitHub API requests within the rate limit. The budget (a token per request) comes from
+ * the <code>X-RateLimit-Remaining</code> and <code>X-RateLimit-Reset</code> headers: once it's
+ * spent, requests wait for the reset instead of failing. A request rejected by the server anyway
+ * (secondary limits, other clients sharing the budget) is retried with exponential back off and
+ * jitter.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+final class RateLimiter {
+
+  /**
+   * The time source. Tests replace it to avoid waiting for real.
+   *
+   * @author edgar.espina
+   * @since 0.1.0
+   */
+  static class Clock {
+    /**
+     * The current time.
+     *
+     * @return The current time in millis.
+     */
+    long millis() {
+      return System.currentTimeMillis();
+    }
+
+    /**
+     * Sleep.
+     *
+     * @param millis The delay in millis.
+     * @throws InterruptedException If the thread is interrupted.
+     */
+    void sleep(final long millis) throws InterruptedException {
+      Thread.sleep(millis);
+    }
+
+    /**
+     * Wait on a monitor owned by the caller, see {@link Object#wait(long)}.
+     *
+     * @param monitor The monitor.
+     * @param millis The maximum wait in millis.
+     * @throws InterruptedException If the thread is interrupted.
+     */
+    void await(final Object monitor, final long millis) throws InterruptedException {
+      monitor.wait(millis);
+    }
+  }
+
+  /**
+   * Remaining requests header.
+   */
+  private static final String REMAINING = "X-RateLimit-Remaining";
+
+  /**
+   * Reset time header, in UTC epoch seconds.
+   */
+  private static final String RESET = "X-RateLimit-Reset";
+
+  /**
+   * The first back off delay in millis.
+   */
+  private static final long BACKOFF = 1000;
+
+  /**
+   * The logging system.
+   */
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  /**
+   * The time source.
+   */
+  private final Clock clock;
+
+  /**
+   * Jitter source.
+   */
+  private final Random random = new Random();
+
+  /**
+   * The remaining requests or -1 if unknown.
+   */
+  private int remaining = -1;
+
+  /**
+   * When the budget resets, in millis.
+   */
+  private long reset;
+
+  /**
+   * The maximum number of retries of a rejected request.
+   */
+  private volatile int maxRetries = 5;
+
+  /**
+   * The maximum time a request waits for the budget to reset, in millis.
+   */
+  private volatile long maxWait = 3600 * 1000;
+
+  /**
+   * Creates a new {@link RateLimiter}.
+   */
+  public RateLimiter() {
+    this(new Clock());
+  }
+
+  /**
+   * Creates a new {@link RateLimiter}.
+   *
+   * @param clock The time source.
+   */
+  RateLimiter(final Clock clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * GET a resource within the rate limit.
+   *
+   * @param transport The HTTP transport.
+   * @param uri The resource URI.
+   * @return The resource content.
+   * @throws IOException If the request fails.
+   */
+  public HttpContent get(final HttpTransport transport, final String uri) throws IOException {
+    for (int attempt = 0;; attempt++) {
+      acquire(uri);
+      HttpContent content = transport.get(uri);
+      if (!update(content)) {
+        // served from cache, nothing was spent
+        release();
+      }
+      if (!rejected(content) || attempt >= maxRetries) {
+        return content;
+      }
+      long delay = backoff(attempt, content);
+      logger.warn("GitHub rate limit exceeded, retrying {} in {}ms", uri, delay);
+      sleep(delay);
+    }
+  }
+
+  /**
+   * Take a token from the budget, waiting for the reset if the budget is spent.
+   *
+   * @param uri The resource URI.
+   * @throws IOException If the reset is too far away or the thread is interrupted.
+   */
+  private synchronized void acquire(final String uri) throws IOException {
+    while (remaining == 0) {
+      long wait = reset - clock.millis();
+      if (wait <= 0) {
+        // new window, the next response tells the real budget
+        remaining = -1;
+        break;
+      }
+      if (wait > maxWait) {
+        throw new IOException("GitHub rate limit exceeded, it resets in " + wait / 1000
+            + "s: " + uri);
+      }
+      logger.info("GitHub rate limit exceeded, waiting {}s for: {}", wait / 1000, uri);
+      try {
+        clock.await(this, wait + jitter(BACKOFF));
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for: " + uri);
+      }
+    }
+    if (remaining > 0) {
+      remaining--;
+    }
+  }
+
+  /**
+   * Give back a token that wasn't spent.
+   */
+  private synchronized void release() {
+    if (remaining >= 0) {
+      remaining++;
+    }
+  }
+
+  /**
+   * Sync the budget with the response headers.
+   *
+   * @param content The response.
+   * @return False if the response has no rate limit headers.
+   */
+  private synchronized boolean update(final HttpContent content) {
+    String remainingHeader = content.getHeader(REMAINING);
+    String resetHeader = content.getHeader(RESET);
+    if (remainingHeader == null || resetHeader == null) {
+      return false;
+    }
+    try {
+      int serverRemaining = Integer.parseInt(remainingHeader.trim());
+      long serverReset = Long.parseLong(resetHeader.trim()) * 1000;
+      if (serverReset > reset || remaining < 0) {
+        // new window
+        remaining = serverRemaining;
+      } else {
+        // other requests might be in flight
+        remaining = Math.min(remaining, serverRemaining);
+      }
+      reset = Math.max(reset, serverReset);
+      notifyAll();
+    } catch (NumberFormatException ex) {
+      logger.debug("Ignoring rate limit headers: {} {}", remainingHeader, resetHeader);
+    }
+    return true;
+  }
+
+  /**
+   * True if the server rejected the request because of a rate limit.
+   *
+   * @param content The response.
+   * @return True if the server rejected the request because of a rate limit.
+   */
+  private static boolean rejected(final HttpContent content) {
+    int status = content.getStatusCode();
+    if (status == 429) {
+      return true;
+    }
+    if (status == 403) {
+      return "0".equals(content.getHeader(REMAINING)) || content.getHeader("Retry-After") != null;
+    }
+    return false;
+  }
+
+  /**
+   * How long to wait before retrying a rejected request.
+   *
+   * @param attempt The attempt number, starting at zero.
+   * @param content The response.
+   * @return The delay in millis.
+   */
+  private long backoff(final int attempt, final HttpContent content) {
+    String retryAfter = content.getHeader("Retry-After");
+    if (retryAfter != null) {
+      try {
+        return Long.parseLong(retryAfter.trim()) * 1000 + jitter(BACKOFF);
+      } catch (NumberFormatException ex) {
+        logger.debug("Ignoring Retry-After: {}", retryAfter);
+      }
+    }
+    long delay = BACKOFF << Math.min(attempt, 6);
+    return delay + jitter(delay);
+  }
+
+  /**
+   * A random delay.
+   *
+   * @param max The maximum delay.
+   * @return A random delay between zero and max.
+   */
+  private long jitter(final long max) {
+    synchronized (random) {
+      return (long) (random.nextDouble() * max);
+    }
+  }
+
+  /**
+   * Sleep.
+   *
+   * @param millis The delay in millis.
+   * @throws InterruptedIOException If the thread is interrupted.
+   */
+  private void sleep(final long millis) throws InterruptedIOException {
+    try {
+      clock.sleep(millis);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while backing off");
+    }
+  }
+
+  /**
+   * Set the maximum number of retries of a rejected request.
+   *
+   * @param maxRetries The maximum number of retries.
+   */
+  public void setMaxRetries(final int maxRetries) {
+    this.maxRetries = maxRetries;
+  }
+
+  /**
+   * Set the maximum time a request waits for the budget to reset.
+   *
+   * @param maxWait The maximum wait in millis.
+   */
+  public void setMaxWait(final long maxWait) {
+    this.maxWait = maxWait;
+  }
+}
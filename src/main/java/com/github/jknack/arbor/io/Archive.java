@@ -0,0 +1,168 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.arbor.io;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.codehaus.plexus.archiver.tar.TarEntry;
+import org.codehaus.plexus.archiver.tar.TarInputStream;
+
+/**
+ * The files of a tar.gz archive, read once and indexed in memory. Paths are relative to the
+ * archive's top directory (like the <code>name-version/</code> directory of GitHub tarballs).
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+public final class Archive {
+
+  /**
+   * The files by path.
+   */
+  private final Map<String, byte[]> files;
+
+  /**
+   * Creates a new {@link Archive}.
+   *
+   * @param files The files by path.
+   */
+  private Archive(final Map<String, byte[]> files) {
+    this.files = files;
+  }
+
+  /**
+   * Read a tar.gz archive.
+   *
+   * @param in The tar.gz stream. Required.
+   * @return The archive.
+   * @throws IOException If the archive can't be read.
+   */
+  public static Archive read(final InputStream in) throws IOException {
+    notNull(in, "The input stream is required.");
+    Map<String, byte[]> files = new LinkedHashMap<String, byte[]>();
+    TarInputStream tar = new TarInputStream(new GZIPInputStream(in));
+    try {
+      TarEntry entry = tar.getNextEntry();
+      while (entry != null) {
+        String name = entry.getName();
+        int slash = name.indexOf('/');
+        // skip directories and pax headers
+        if (!entry.isDirectory() && slash > 0 && !name.contains("PaxHeader")) {
+          ByteArrayOutputStream content = new ByteArrayOutputStream((int) entry.getSize());
+          tar.copyEntryContents(content);
+          files.put(name.substring(slash + 1), content.toByteArray());
+        }
+        entry = tar.getNextEntry();
+      }
+    } finally {
+      tar.close();
+    }
+    return new Archive(files);
+  }
+
+  /**
+   * The content of a file.
+   *
+   * @param path The file's path, like <code>component.json</code> or <code>./lib/main.js</code>.
+   * @return The file's content or null if the file doesn't exist.
+   */
+  public byte[] get(final String path) {
+    String normalized = normalize(path);
+    return normalized == null ? null : files.get(normalized);
+  }
+
+  /**
+   * The content of a text file.
+   *
+   * @param path The file's path.
+   * @return The file's content or null if the file doesn't exist.
+   * @throws IOException If the content isn't UTF-8.
+   */
+  public String getString(final String path) throws IOException {
+    byte[] content = get(path);
+    return content == null ? null : new String(content, "UTF-8");
+  }
+
+  /**
+   * The paths of all the files.
+   *
+   * @return The paths of all the files.
+   */
+  public Set<String> paths() {
+    return Collections.unmodifiableSet(files.keySet());
+  }
+
+  /**
+   * Write files to a directory.
+   *
+   * @param dir The directory.
+   * @param paths The paths of the files to write, all the files if empty. Missing files are
+   *        ignored.
+   * @throws IOException If a file can't be written.
+   */
+  public void extract(final File dir, final String... paths) throws IOException {
+    if (paths.length == 0) {
+      for (Entry<String, byte[]> file : files.entrySet()) {
+        String path = normalize(file.getKey());
+        if (path != null) {
+          FileUtils.writeByteArrayToFile(new File(dir, path), file.getValue());
+        }
+      }
+      return;
+    }
+    for (String path : paths) {
+      String normalized = normalize(path);
+      byte[] content = normalized == null ? null : files.get(normalized);
+      if (content != null) {
+        FileUtils.writeByteArrayToFile(new File(dir, normalized), content);
+      }
+    }
+  }
+
+  /**
+   * Normalize a path, removing leading slashes and dots.
+   *
+   * @param path The path.
+   * @return The normalized path or null if the path goes out of the archive.
+   */
+  private static String normalize(final String path) {
+    String normalized = FilenameUtils.normalize(path, true);
+    if (normalized == null) {
+      return null;
+    }
+    while (normalized.startsWith("/")) {
+      normalized = normalized.substring(1);
+    }
+    return normalized;
+  }
+
+  @Override
+  public String toString() {
+    return files.keySet().toString();
+  }
+}
@@ -0,0 +1,280 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.arbor.io;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.jknack.arbor.io.HttpTransport.ContentHandler;
+
+/**
+ * A content-addressable store of extracted archives, shareable by any number of projects. An
+ * archive is extracted once under the SHA-256 of its bytes (hashed while it downloads) and module
+ * directories get hard links to its files, or copies where links aren't supported. A second
+ * download of the same URI is skipped.
+ * <p>
+ * Layout:
+ * </p>
+ * <ul>
+ * <li><code>objects/ab/abcdef.../</code>: an extracted archive, read-only.</li>
+ * <li><code>refs/&lt;sha256 of the URI&gt;</code>: the SHA-256 of the archive at a URI.</li>
+ * <li><code>tmp/</code>: archives being extracted.</li>
+ * </ul>
+ * Objects are moved into place with an atomic rename, so several processes can share a store.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+public class ArtifactStore {
+
+  /**
+   * The default store, in the <code>arbor.store</code> directory (system property) or
+   * <code>~/.arbor/store</code>.
+   */
+  private static final ArtifactStore DEFAULT = new ArtifactStore(new File(System.getProperty(
+      "arbor.store", System.getProperty("user.home") + "/.arbor/store")));
+
+  /**
+   * The logging system.
+   */
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  /**
+   * The store directory.
+   */
+  private final File root;
+
+  /**
+   * Creates a new {@link ArtifactStore}.
+   *
+   * @param root The store directory. Required.
+   */
+  public ArtifactStore(final File root) {
+    this.root = notNull(root, "The root is required.");
+  }
+
+  /**
+   * The store shared by all the projects of the current user.
+   *
+   * @return The default store.
+   */
+  public static ArtifactStore getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Extract an archive into a directory, downloading it only if it isn't in the store yet.
+   *
+   * @param transport The HTTP transport. Required.
+   * @param uri The archive URI. Its extension tells the archive format. Required.
+   * @param destination The destination directory. Required.
+   * @param paths The paths of the files to extract (without the <code>package/</code> prefix),
+   *        all the files if empty.
+   * @return The SHA-256 of the archive.
+   * @throws IOException If the archive can't be downloaded or extracted.
+   */
+  public String extract(final HttpTransport transport, final String uri, final File destination,
+      final String... paths) throws IOException {
+    notNull(transport, "The transport is required.");
+    notNull(uri, "The uri is required.");
+    notNull(destination, "The destination is required.");
+
+    String digest = digest(uri);
+    if (digest == null || !object(digest).isDirectory()) {
+      digest = download(transport, uri);
+    } else {
+      logger.debug("{} found in store: {}", uri, digest);
+    }
+    link(object(digest), destination, paths);
+    return digest;
+  }
+
+  /**
+   * The SHA-256 of the archive downloaded from a URI.
+   *
+   * @param uri The archive URI. Required.
+   * @return The SHA-256 of the archive or null if it was never downloaded.
+   * @throws IOException If the store can't be read.
+   */
+  public String digest(final String uri) throws IOException {
+    File ref = ref(uri);
+    if (!ref.exists()) {
+      return null;
+    }
+    String digest = FileUtils.readFileToString(ref, "UTF-8").trim();
+    return digest.matches("[0-9a-f]{64}") ? digest : null;
+  }
+
+  /**
+   * The directory of an extracted archive.
+   *
+   * @param digest The SHA-256 of the archive. Required.
+   * @return The directory of the extracted archive (it might not exist).
+   */
+  public File object(final String digest) {
+    notNull(digest, "The digest is required.");
+    return new File(root, "objects/" + digest.substring(0, 2) + "/" + digest);
+  }
+
+  /**
+   * The store directory.
+   *
+   * @return The store directory.
+   */
+  public File getRoot() {
+    return root;
+  }
+
+  /**
+   * Download and extract an archive into the store.
+   *
+   * @param transport The HTTP transport.
+   * @param uri The archive URI.
+   * @return The SHA-256 of the archive.
+   * @throws IOException If the archive can't be downloaded or extracted.
+   */
+  private String download(final HttpTransport transport, final String uri) throws IOException {
+    final File tmp = new File(root, "tmp/" + UUID.randomUUID());
+    tmp.mkdirs();
+    try {
+      String digest = transport.download(uri, new ContentHandler<String>() {
+        @Override
+        public String handle(final InputStream content) throws IOException {
+          DigestInputStream in = new DigestInputStream(content, Digests.sha256());
+          FileExtractor.extract(in, uri, tmp);
+          // hash the end of archive padding too
+          IOUtils.skip(in, Long.MAX_VALUE);
+          return Digests.hex(in.getMessageDigest().digest());
+        }
+      });
+      String previous = digest(uri);
+      if (previous != null && !previous.equals(digest)) {
+        logger.warn("{} has changed, expected SHA-256: {}, found: {}",
+            new Object[]{uri, previous, digest });
+      }
+      File object = object(digest);
+      if (!object.exists()) {
+        object.getParentFile().mkdirs();
+        if (!tmp.renameTo(object) && !object.exists()) {
+          throw new IOException("Can't move: " + tmp + " to: " + object);
+        }
+        // links share the content with the store, don't let anyone change it
+        for (File file : FileUtils.listFiles(object, TrueFileFilter.INSTANCE,
+            TrueFileFilter.INSTANCE)) {
+          file.setWritable(false);
+        }
+      }
+      writeRef(uri, digest);
+      return digest;
+    } finally {
+      if (tmp.exists()) {
+        FileUtils.deleteDirectory(tmp);
+      }
+    }
+  }
+
+  /**
+   * Link (or copy) the files of an extracted archive into a directory.
+   *
+   * @param object The extracted archive.
+   * @param destination The destination directory.
+   * @param paths The paths of the files, all the files if empty.
+   * @throws IOException If a file can't be linked or copied.
+   */
+  private static void link(final File object, final File destination, final String... paths)
+      throws IOException {
+    if (paths.length == 0) {
+      for (File file : FileUtils.listFiles(object, TrueFileFilter.INSTANCE,
+          TrueFileFilter.INSTANCE)) {
+        String path = object.toURI().relativize(file.toURI()).getPath();
+        link(file, new File(destination, path));
+      }
+      return;
+    }
+    for (String path : paths) {
+      String normalized = FilenameUtils.normalize(path, true);
+      if (normalized != null) {
+        File file = new File(object, normalized);
+        if (file.isFile()) {
+          link(file, new File(destination, normalized));
+        }
+      }
+    }
+  }
+
+  /**
+   * Hard link a file, or copy it if the file system doesn't support hard links (or the
+   * destination is in a different file system).
+   *
+   * @param source The source file.
+   * @param target The link.
+   * @throws IOException If the file can't be linked or copied.
+   */
+  private static void link(final File source, final File target) throws IOException {
+    target.getParentFile().mkdirs();
+    Files.deleteIfExists(target.toPath());
+    try {
+      Files.createLink(target.toPath(), source.toPath());
+    } catch (UnsupportedOperationException ex) {
+      Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException ex) {
+      Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * The file with the SHA-256 of the archive at a URI.
+   *
+   * @param uri The archive URI.
+   * @return The ref file.
+   */
+  private File ref(final String uri) {
+    return new File(root, "refs/" + Digests.sha256(uri));
+  }
+
+  /**
+   * Save the SHA-256 of the archive at a URI, atomically.
+   *
+   * @param uri The archive URI.
+   * @param digest The SHA-256 of the archive.
+   * @throws IOException If the ref can't be saved.
+   */
+  private void writeRef(final String uri, final String digest) throws IOException {
+    File ref = ref(uri);
+    File tmp = new File(ref.getParentFile(), ref.getName() + "." + UUID.randomUUID());
+    FileUtils.writeStringToFile(tmp, digest, "UTF-8");
+    Files.move(tmp.toPath(), ref.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  @Override
+  public String toString() {
+    return root.toString();
+  }
+}
@@ -0,0 +1,108 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.arbor.io;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * SHA-256 helpers.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+public final class Digests {
+
+  /**
+   * Not allowed.
+   */
+  private Digests() {
+  }
+
+  /**
+   * Creates a SHA-256 digest.
+   *
+   * @return A SHA-256 digest.
+   */
+  public static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 isn't available", ex);
+    }
+  }
+
+  /**
+   * The SHA-256 of a file, in hexadecimal.
+   *
+   * @param file A file. Required.
+   * @return The SHA-256 of a file.
+   * @throws IOException If the file can't be read.
+   */
+  public static String sha256(final File file) throws IOException {
+    notNull(file, "The file is required.");
+    MessageDigest digest = sha256();
+    InputStream in = new FileInputStream(file);
+    try {
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+    return hex(digest.digest());
+  }
+
+  /**
+   * The SHA-256 of an UTF-8 string, in hexadecimal.
+   *
+   * @param text A string. Required.
+   * @return The SHA-256 of the string.
+   */
+  public static String sha256(final String text) {
+    notNull(text, "The text is required.");
+    try {
+      return hex(sha256().digest(text.getBytes("UTF-8")));
+    } catch (UnsupportedEncodingException ex) {
+      throw new IllegalStateException("UTF-8 isn't available", ex);
+    }
+  }
+
+  /**
+   * Encode bytes as hexadecimal.
+   *
+   * @param bytes The bytes.
+   * @return The hexadecimal string.
+   */
+  public static String hex(final byte[] bytes) {
+    StringBuilder buffer = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      buffer.append(Character.forDigit((b >> 4) & 0xF, 16))
+          .append(Character.forDigit(b & 0xF, 16));
+    }
+    return buffer.toString();
+  }
+}
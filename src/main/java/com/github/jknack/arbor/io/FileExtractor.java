@@ -19,15 +19,28 @@ import static org.apache.commons.io.FilenameUtils.getExtension;
 import static org.apache.commons.lang3.Validate.notNull;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
 
 import org.codehaus.plexus.archiver.AbstractUnArchiver;
 import org.codehaus.plexus.archiver.bzip2.BZip2UnArchiver;
+import org.codehaus.plexus.archiver.bzip2.CBZip2InputStream;
 import org.codehaus.plexus.archiver.gzip.GZipUnArchiver;
 import org.codehaus.plexus.archiver.tar.TarBZip2UnArchiver;
+import org.codehaus.plexus.archiver.tar.TarEntry;
 import org.codehaus.plexus.archiver.tar.TarGZipUnArchiver;
+import org.codehaus.plexus.archiver.tar.TarInputStream;
 import org.codehaus.plexus.archiver.zip.ZipUnArchiver;
 import org.codehaus.plexus.components.io.fileselectors.FileInfo;
 import org.codehaus.plexus.components.io.fileselectors.FileSelector;
@@ -347,4 +360,124 @@ public final class FileExtractor {
     archiver.extract();
   }
 
+  /**
+   * A file selector that accepts the given files only.
+   *
+   * @param paths The paths of the files, without the <code>package/</code> prefix.
+   * @return A file selector that accepts the given files only.
+   */
+  public static FileSelector only(final String... paths) {
+    final Set<String> files = new HashSet<String>();
+    for (String path : paths) {
+      String normalized = normalize(path);
+      if (normalized != null) {
+        files.add(normalized);
+      }
+    }
+    return new FileSelector() {
+      @Override
+      public boolean isSelected(final FileInfo fileInfo) throws IOException {
+        return fileInfo.isFile() && files.contains(normalize(fileInfo.getName()));
+      }
+    };
+  }
+
+  /**
+   * Normalize a path, removing leading slashes and dots.
+   *
+   * @param path The path.
+   * @return The normalized path or null if the path goes out of the archive.
+   */
+  private static String normalize(final String path) {
+    String normalized = FilenameUtils.normalize(path, true);
+    while (normalized != null && normalized.startsWith("/")) {
+      normalized = normalized.substring(1);
+    }
+    return normalized;
+  }
+
+  /**
+   * Extract an archive while it's being read (from a socket, for example), without saving it
+   * first. Supports the tar.gz, tar.bz2 and zip formats.
+   *
+   * @param source The archive stream. It isn't closed. Required.
+   * @param name The archive's name, used for detecting the format. Required.
+   * @param destination The destination directory. Required.
+   * @param selectors The file selectors.
+   * @throws IOException If the archive can't be extracted.
+   */
+  public static void extract(final InputStream source, final String name,
+      final File destination, final FileSelector... selectors) throws IOException {
+    notNull(source, "The source stream is required.");
+    notNull(name, "The name is required.");
+    notNull(destination, "The destination file is required.");
+
+    File archive = new File(name);
+    if (UnArchiverFactory.ZIP.apply(archive)) {
+      ZipInputStream zip = new ZipInputStream(source);
+      ZipEntry entry = zip.getNextEntry();
+      while (entry != null) {
+        extract(zip, entry.getName(), entry.isDirectory(), destination, selectors);
+        entry = zip.getNextEntry();
+      }
+      return;
+    }
+    final InputStream decompressed;
+    if (UnArchiverFactory.TAR_GZ.apply(archive)) {
+      decompressed = new GZIPInputStream(source);
+    } else if (UnArchiverFactory.TAR_BZ2.apply(archive)) {
+      if (source.read() != 'B' || source.read() != 'Z') {
+        throw new IOException("Not a bzip2 stream: " + name);
+      }
+      decompressed = new CBZip2InputStream(source);
+    } else {
+      throw new UnsupportedOperationException("File extension: " + getExtension(name));
+    }
+    TarInputStream tar = new TarInputStream(decompressed);
+    TarEntry entry = tar.getNextEntry();
+    while (entry != null) {
+      extract(tar, entry.getName(), entry.isDirectory(), destination, selectors);
+      entry = tar.getNextEntry();
+    }
+  }
+
+  /**
+   * Extract the current entry of an archive stream.
+   *
+   * @param in The archive stream, positioned at the entry's content.
+   * @param entryName The entry's name.
+   * @param isDirectory True for directories.
+   * @param destination The destination directory.
+   * @param selectors The file selectors.
+   * @throws IOException If the entry can't be written.
+   */
+  private static void extract(final InputStream in, final String entryName,
+      final boolean isDirectory, final File destination, final FileSelector... selectors)
+      throws IOException {
+    if (entryName.endsWith("pax_global_header")) {
+      return;
+    }
+    FileInfo fileInfo = UnArchiverFactory.createFileInfo(in, entryName, isDirectory, selectors);
+    if (fileInfo == null) {
+      return;
+    }
+    String path = normalize(fileInfo.getName());
+    if (path == null) {
+      logger.warn("Skipping entry outside of the destination directory: {}", entryName);
+      return;
+    }
+    File file = new File(destination, path);
+    if (isDirectory) {
+      file.mkdirs();
+      return;
+    }
+    file.getParentFile().mkdirs();
+    OutputStream out = new FileOutputStream(file);
+    try {
+      IOUtils.copy(in, out);
+    } finally {
+      out.close();
+    }
+  }
+
 }
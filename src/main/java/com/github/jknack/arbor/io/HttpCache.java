@@ -0,0 +1,484 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.arbor.io;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+import static org.apache.http.client.fluent.Request.Get;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.StatusLine;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.fluent.Request;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A disk cache for metadata requests. Successful responses are stored with their
+ * <code>ETag</code>, <code>Last-Modified</code> and <code>Cache-Control</code> headers:
+ * <ul>
+ * <li>A response younger than its <code>max-age</code> is served without any request.</li>
+ * <li>A stale response is revalidated with <code>If-None-Match</code> and
+ * <code>If-Modified-Since</code>, so an unchanged resource costs a 304.</li>
+ * <li>In stale-while-revalidate mode a stale response is served right away and revalidated in
+ * background. The server's <code>stale-while-revalidate</code> directive is honoured too, and
+ * <code>must-revalidate</code> turns the mode off.</li>
+ * </ul>
+ * The cache is opt-in: see {@link HttpTransport#setCache(HttpCache)}, the
+ * <code>arbor.cache</code> system property or <code>Arbor#setCache(File)</code>.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+public class HttpCache {
+
+  /**
+   * A cached response.
+   *
+   * @author edgar.espina
+   * @since 0.1.0
+   */
+  private static class Entry {
+    /**
+     * The request URI.
+     */
+    private String uri;
+
+    /**
+     * The ETag header or an empty string.
+     */
+    private String etag = "";
+
+    /**
+     * The Last-Modified header or an empty string.
+     */
+    private String lastModified = "";
+
+    /**
+     * When the response was fetched or revalidated.
+     */
+    private long date;
+
+    /**
+     * The max-age directive in seconds, -1 if the server didn't set it.
+     */
+    private long maxAge = -1;
+
+    /**
+     * The stale-while-revalidate directive in seconds, -1 for must-revalidate.
+     */
+    private long staleWhileRevalidate;
+
+    /**
+     * True if the response can't be stored.
+     */
+    private boolean noStore;
+
+    /**
+     * The response body.
+     */
+    private String body;
+
+    /**
+     * Update the validators and freshness from a response.
+     *
+     * @param response A 200 or 304 response.
+     * @return This entry.
+     */
+    public Entry update(final HttpResponse response) {
+      date = System.currentTimeMillis();
+      etag = header(response, "ETag", etag);
+      lastModified = header(response, "Last-Modified", lastModified);
+      Header[] cacheControl = response.getHeaders("Cache-Control");
+      if (cacheControl.length > 0) {
+        boolean noCache = false;
+        maxAge = -1;
+        staleWhileRevalidate = 0;
+        for (Header header : cacheControl) {
+          for (HeaderElement directive : header.getElements()) {
+            String name = directive.getName().toLowerCase();
+            if ("max-age".equals(name)) {
+              maxAge = seconds(directive.getValue());
+            } else if ("stale-while-revalidate".equals(name) && staleWhileRevalidate >= 0) {
+              staleWhileRevalidate = seconds(directive.getValue());
+            } else if ("must-revalidate".equals(name)) {
+              staleWhileRevalidate = -1;
+            } else if ("no-cache".equals(name)) {
+              noCache = true;
+            } else if ("no-store".equals(name)) {
+              noStore = true;
+            }
+          }
+        }
+        if (noCache) {
+          maxAge = 0;
+        }
+      }
+      return this;
+    }
+
+    /**
+     * The content of this entry.
+     *
+     * @param headers The headers of the revalidation response, if any.
+     * @return The content of this entry.
+     */
+    public HttpContent content(final Header... headers) {
+      return new HttpContent(HttpStatus.SC_OK, "OK", body, true, headers);
+    }
+
+    /**
+     * The age of this entry in millis.
+     *
+     * @return The age of this entry in millis.
+     */
+    public long age() {
+      return System.currentTimeMillis() - date;
+    }
+
+    /**
+     * Read a header.
+     *
+     * @param response The HTTP response.
+     * @param name The header's name.
+     * @param defaultValue The value if the header is missing.
+     * @return The header's value.
+     */
+    private static String header(final HttpResponse response, final String name,
+        final String defaultValue) {
+      Header header = response.getFirstHeader(name);
+      return header == null ? defaultValue : header.getValue();
+    }
+
+    /**
+     * Parse a number of seconds.
+     *
+     * @param value The directive value.
+     * @return The number of seconds or zero if the value isn't valid.
+     */
+    private static long seconds(final String value) {
+      try {
+        return value == null ? 0 : Math.max(0, Long.parseLong(value.trim()));
+      } catch (NumberFormatException ex) {
+        return 0;
+      }
+    }
+  }
+
+  /**
+   * The magic number of a cache file.
+   */
+  private static final int MAGIC = 0x41524843;
+
+  /**
+   * The logging system.
+   */
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  /**
+   * The cache directory.
+   */
+  private final File dir;
+
+  /**
+   * Seconds a stale response can be served while it's revalidated in background.
+   */
+  private volatile long staleWhileRevalidate;
+
+  /**
+   * The URIs being revalidated in background.
+   */
+  private final Set<String> revalidating = Collections
+      .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+  /**
+   * Runs background revalidations.
+   */
+  private ExecutorService revalidator;
+
+  /**
+   * Creates a new {@link HttpCache}.
+   *
+   * @param dir The cache directory. Required.
+   */
+  public HttpCache(final File dir) {
+    this.dir = notNull(dir, "The dir is required.");
+  }
+
+  /**
+   * Serve stale responses for the given number of seconds after they expire, while they are
+   * revalidated in background. Zero (the default) turns the mode off.
+   *
+   * @param seconds Number of seconds a stale response can be served.
+   */
+  public void setStaleWhileRevalidate(final long seconds) {
+    isTrue(seconds >= 0, "The seconds must be positive.");
+    this.staleWhileRevalidate = seconds;
+  }
+
+  /**
+   * GET a resource, from the cache if possible.
+   *
+   * @param transport The HTTP transport.
+   * @param uri The resource URI.
+   * @param defaultMaxAge The max-age in seconds if the server doesn't set one.
+   * @return The resource content.
+   * @throws IOException If the request fails.
+   */
+  HttpContent get(final HttpTransport transport, final String uri, final long defaultMaxAge)
+      throws IOException {
+    File file = file(uri);
+    Entry entry = read(file, uri);
+    if (entry != null) {
+      long age = entry.age();
+      long maxAge = entry.maxAge < 0 ? defaultMaxAge : entry.maxAge;
+      if (age < maxAge * 1000) {
+        logger.debug("{} is fresh", uri);
+        return entry.content();
+      }
+      if (entry.staleWhileRevalidate >= 0) {
+        long stale = Math.max(staleWhileRevalidate, entry.staleWhileRevalidate);
+        if (age < (maxAge + stale) * 1000) {
+          logger.debug("{} is stale, revalidating in background", uri);
+          revalidate(transport, uri, entry);
+          return entry.content();
+        }
+      }
+    }
+    return fetch(transport, uri, entry);
+  }
+
+  /**
+   * Send a GET, conditional if there is a cached entry, and store the response.
+   *
+   * @param transport The HTTP transport.
+   * @param uri The resource URI.
+   * @param entry The cached entry or null.
+   * @return The resource content.
+   * @throws IOException If the request fails.
+   */
+  private HttpContent fetch(final HttpTransport transport, final String uri, final Entry entry)
+      throws IOException {
+    Request request = Get(uri);
+    if (entry != null) {
+      if (entry.etag.length() > 0) {
+        request.addHeader("If-None-Match", entry.etag);
+      }
+      if (entry.lastModified.length() > 0) {
+        request.addHeader("If-Modified-Since", entry.lastModified);
+      }
+    }
+    logger.debug("GET {}", uri);
+    return transport.execute(request).handleResponse(new ResponseHandler<HttpContent>() {
+      @Override
+      public HttpContent handleResponse(final HttpResponse response)
+          throws ClientProtocolException, IOException {
+        StatusLine statusLine = response.getStatusLine();
+        HttpEntity entity = response.getEntity();
+        if (statusLine.getStatusCode() == HttpStatus.SC_NOT_MODIFIED && entry != null) {
+          EntityUtils.consume(entity);
+          logger.debug("{} not modified", uri);
+          write(entry.update(response));
+          return entry.content(response.getAllHeaders());
+        }
+        String body = entity == null ? "" : EntityUtils.toString(entity, "UTF-8");
+        if (statusLine.getStatusCode() == HttpStatus.SC_OK) {
+          Entry fresh = new Entry();
+          fresh.uri = uri;
+          fresh.body = body;
+          fresh.update(response);
+          if (fresh.noStore) {
+            delete(file(uri));
+          } else {
+            write(fresh);
+          }
+        }
+        return new HttpContent(statusLine.getStatusCode(), statusLine.getReasonPhrase(), body,
+            false, response.getAllHeaders());
+      }
+    });
+  }
+
+  /**
+   * Revalidate an entry in background.
+   *
+   * @param transport The HTTP transport.
+   * @param uri The resource URI.
+   * @param entry The stale entry.
+   */
+  private void revalidate(final HttpTransport transport, final String uri, final Entry entry) {
+    if (!revalidating.add(uri)) {
+      return;
+    }
+    revalidator().execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          fetch(transport, uri, entry);
+        } catch (IOException ex) {
+          logger.debug("Can't revalidate: " + uri, ex);
+        } finally {
+          revalidating.remove(uri);
+        }
+      }
+    });
+  }
+
+  /**
+   * The background revalidation executor, created on first use.
+   *
+   * @return The background revalidation executor.
+   */
+  private synchronized ExecutorService revalidator() {
+    if (revalidator == null) {
+      revalidator = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable task) {
+          Thread thread = new Thread(task, "arbor-revalidate");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return revalidator;
+  }
+
+  /**
+   * The cache file of a URI.
+   *
+   * @param uri The URI.
+   * @return The cache file of a URI.
+   */
+  private File file(final String uri) {
+    return new File(dir, Digests.sha256(uri));
+  }
+
+  /**
+   * Read a cache file.
+   *
+   * @param file The cache file.
+   * @param uri The expected URI.
+   * @return The cached entry or null if the file is missing or it can't be read.
+   */
+  private Entry read(final File file, final String uri) {
+    if (!file.exists()) {
+      return null;
+    }
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a cache file");
+      }
+      Entry entry = new Entry();
+      entry.uri = in.readUTF();
+      if (!uri.equals(entry.uri)) {
+        return null;
+      }
+      entry.etag = in.readUTF();
+      entry.lastModified = in.readUTF();
+      entry.date = in.readLong();
+      entry.maxAge = in.readLong();
+      entry.staleWhileRevalidate = in.readLong();
+      byte[] body = new byte[in.readInt()];
+      in.readFully(body);
+      entry.body = new String(body, "UTF-8");
+      return entry;
+    } catch (IOException ex) {
+      logger.debug("Ignoring broken cache file: " + file, ex);
+      IOUtils.closeQuietly(in);
+      in = null;
+      delete(file);
+      return null;
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  /**
+   * Save an entry. The entry is written to a temporary file first, so readers never see a partial
+   * entry.
+   *
+   * @param entry The entry.
+   * @throws IOException If the entry can't be saved.
+   */
+  private void write(final Entry entry) throws IOException {
+    dir.mkdirs();
+    File file = file(entry.uri);
+    File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+        tmp)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeUTF(entry.uri);
+      out.writeUTF(entry.etag);
+      out.writeUTF(entry.lastModified);
+      out.writeLong(entry.date);
+      out.writeLong(entry.maxAge);
+      out.writeLong(entry.staleWhileRevalidate);
+      byte[] body = entry.body.getBytes("UTF-8");
+      out.writeInt(body.length);
+      out.write(body);
+    } finally {
+      out.close();
+    }
+    if (!tmp.renameTo(file)) {
+      // some platforms don't replace files on rename
+      delete(file);
+      if (!tmp.renameTo(file)) {
+        delete(tmp);
+        throw new IOException("Can't write: " + file);
+      }
+    }
+  }
+
+  /**
+   * Delete a file, if possible.
+   *
+   * @param file The file.
+   */
+  private void delete(final File file) {
+    if (file.exists() && !file.delete()) {
+      logger.debug("Can't delete: {}", file);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return dir.toString();
+  }
+}
@@ -0,0 +1,133 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.arbor.io;
+
+import org.apache.http.Header;
+import org.apache.http.client.HttpResponseException;
+
+/**
+ * The status and body of a metadata request, see {@link HttpTransport#get(String)}.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+public final class HttpContent {
+
+  /**
+   * The status code.
+   */
+  private final int statusCode;
+
+  /**
+   * The reason phrase.
+   */
+  private final String reasonPhrase;
+
+  /**
+   * The response body.
+   */
+  private final String body;
+
+  /**
+   * True if the body didn't come from the network.
+   */
+  private final boolean cached;
+
+  /**
+   * The response headers, empty if the body came from the cache without a request.
+   */
+  private final Header[] headers;
+
+  /**
+   * Creates a new {@link HttpContent}.
+   *
+   * @param statusCode The status code.
+   * @param reasonPhrase The reason phrase.
+   * @param body The response body, might be empty.
+   * @param cached True if the body didn't come from the network.
+   * @param headers The response headers.
+   */
+  HttpContent(final int statusCode, final String reasonPhrase, final String body,
+      final boolean cached, final Header... headers) {
+    this.statusCode = statusCode;
+    this.reasonPhrase = reasonPhrase;
+    this.body = body;
+    this.cached = cached;
+    this.headers = headers;
+  }
+
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  public String getReasonPhrase() {
+    return reasonPhrase;
+  }
+
+  public String getBody() {
+    return body;
+  }
+
+  /**
+   * A response header. Headers are missing when the body came from the cache without a request.
+   *
+   * @param name The header's name.
+   * @return The header's value or null.
+   */
+  public String getHeader(final String name) {
+    for (Header header : headers) {
+      if (header.getName().equalsIgnoreCase(name)) {
+        return header.getValue();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * True if the body came from the cache (fresh or revalidated).
+   *
+   * @return True if the body came from the cache.
+   */
+  public boolean isCached() {
+    return cached;
+  }
+
+  /**
+   * True for a 2xx status code.
+   *
+   * @return True for a 2xx status code.
+   */
+  public boolean isSuccess() {
+    return statusCode >= 200 && statusCode < 300;
+  }
+
+  /**
+   * The response body of a successful request.
+   *
+   * @return The response body.
+   * @throws HttpResponseException If the request failed.
+   */
+  public String asString() throws HttpResponseException {
+    if (!isSuccess()) {
+      throw new HttpResponseException(statusCode, reasonPhrase);
+    }
+    return body;
+  }
+
+  @Override
+  public String toString() {
+    return statusCode + " " + reasonPhrase;
+  }
+}
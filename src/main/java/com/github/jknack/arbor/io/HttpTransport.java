@@ -0,0 +1,383 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.arbor.io;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.http.client.fluent.Request.Get;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.StatusLine;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.fluent.Executor;
+import org.apache.http.client.fluent.Request;
+import org.apache.http.client.fluent.Response;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.DecompressingHttpClient;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.codehaus.plexus.components.io.fileselectors.FileSelector;
+
+/**
+ * The HTTP client shared by resolvers. Connections are pooled and kept alive per host, responses
+ * are transparently decompressed and every request and downloaded byte (as sent by the server,
+ * before decompression) is counted.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+public class HttpTransport {
+
+  /**
+   * Reads the content of a download as it arrives, see {@link HttpTransport#download}.
+   *
+   * @author edgar.espina
+   * @since 0.1.0
+   * @param <T> The result type.
+   */
+  public interface ContentHandler<T> {
+    /**
+     * Read the content of a successful response.
+     *
+     * @param content The response content. It's closed by the transport.
+     * @return The result.
+     * @throws IOException If the content can't be read.
+     */
+    T handle(InputStream content) throws IOException;
+  }
+
+  /**
+   * Counts the bytes read from a response.
+   *
+   * @author edgar.espina
+   * @since 0.1.0
+   */
+  private class CountingEntity extends HttpEntityWrapper {
+
+    /**
+     * Creates a new {@link CountingEntity}.
+     *
+     * @param entity The response entity.
+     */
+    public CountingEntity(final HttpEntity entity) {
+      super(entity);
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+      return new ProxyInputStream(super.getContent()) {
+        @Override
+        protected void afterRead(final int n) {
+          if (n > 0) {
+            bytes.addAndGet(n);
+          }
+        }
+      };
+    }
+
+    @Override
+    public void writeTo(final OutputStream out) throws IOException {
+      InputStream in = getContent();
+      try {
+        IOUtils.copy(in, out);
+      } finally {
+        in.close();
+      }
+    }
+  }
+
+  /**
+   * The default connect and read timeout in millis.
+   */
+  public static final int DEFAULT_TIMEOUT = 30000;
+
+  /**
+   * The default number of connections per host.
+   */
+  public static final int DEFAULT_CONNECTIONS = 8;
+
+  /**
+   * The default transport. It doesn't cache metadata, unless the <code>arbor.cache</code> system
+   * property points to a cache directory or a cache is set with {@link #setCache(HttpCache)}.
+   */
+  private static final HttpTransport DEFAULT = new HttpTransport();
+
+  static {
+    String cacheDir = System.getProperty("arbor.cache");
+    if (cacheDir != null) {
+      DEFAULT.setCache(new HttpCache(new File(cacheDir)));
+    }
+  }
+
+  /**
+   * The connection pool.
+   */
+  private final PoolingClientConnectionManager connectionManager;
+
+  /**
+   * The HTTP client.
+   */
+  private final DefaultHttpClient client;
+
+  /**
+   * The request executor.
+   */
+  private final Executor executor;
+
+  /**
+   * The metadata cache or null.
+   */
+  private volatile HttpCache cache;
+
+  /**
+   * Number of requests.
+   */
+  private final AtomicLong requests = new AtomicLong();
+
+  /**
+   * Number of downloaded bytes.
+   */
+  private final AtomicLong bytes = new AtomicLong();
+
+  /**
+   * Creates a new {@link HttpTransport}.
+   */
+  public HttpTransport() {
+    connectionManager = new PoolingClientConnectionManager();
+    client = new DefaultHttpClient(connectionManager);
+    client.addRequestInterceptor(new HttpRequestInterceptor() {
+      @Override
+      public void process(final HttpRequest request, final HttpContext context)
+          throws HttpException, IOException {
+        requests.incrementAndGet();
+      }
+    });
+    client.addResponseInterceptor(new HttpResponseInterceptor() {
+      @Override
+      public void process(final HttpResponse response, final HttpContext context)
+          throws HttpException, IOException {
+        HttpEntity entity = response.getEntity();
+        if (entity != null) {
+          response.setEntity(new CountingEntity(entity));
+        }
+      }
+    });
+    executor = Executor.newInstance(new DecompressingHttpClient(client));
+    setConnections(DEFAULT_CONNECTIONS);
+    setConnectTimeout(DEFAULT_TIMEOUT);
+    setReadTimeout(DEFAULT_TIMEOUT);
+  }
+
+  /**
+   * The transport used by resolvers unless they get a different one.
+   *
+   * @return The default transport.
+   */
+  public static HttpTransport getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Execute a request.
+   *
+   * @param request The request.
+   * @return The response.
+   * @throws IOException If the request fails.
+   */
+  public Response execute(final Request request) throws IOException {
+    return executor.execute(request);
+  }
+
+  /**
+   * GET an artifact, like a tarball, and read it as it arrives. Nothing is buffered or cached.
+   *
+   * @param uri The artifact URI.
+   * @param handler The content handler.
+   * @return The handler's result.
+   * @throws IOException If the request fails or the handler can't read the content.
+   */
+  public <T> T download(final String uri, final ContentHandler<T> handler) throws IOException {
+    return execute(Get(uri)).handleResponse(new ResponseHandler<T>() {
+      @Override
+      public T handleResponse(final HttpResponse response) throws IOException {
+        StatusLine statusLine = response.getStatusLine();
+        if (statusLine.getStatusCode() >= 300) {
+          EntityUtils.consume(response.getEntity());
+          throw new HttpResponseException(statusLine.getStatusCode(),
+              statusLine.getReasonPhrase());
+        }
+        InputStream content = response.getEntity().getContent();
+        try {
+          return handler.handle(content);
+        } finally {
+          content.close();
+        }
+      }
+    });
+  }
+
+  /**
+   * Download an archive and extract it as it arrives, see
+   * {@link FileExtractor#extract(InputStream, String, File, FileSelector...)}.
+   *
+   * @param uri The archive URI. Its extension tells the archive format.
+   * @param destination The destination directory.
+   * @param selectors The file selectors.
+   * @throws IOException If the archive can't be downloaded or extracted.
+   */
+  public void extract(final String uri, final File destination, final FileSelector... selectors)
+      throws IOException {
+    download(uri, new ContentHandler<Void>() {
+      @Override
+      public Void handle(final InputStream content) throws IOException {
+        FileExtractor.extract(content, uri, destination, selectors);
+        return null;
+      }
+    });
+  }
+
+  /**
+   * GET a metadata resource, like a registry document. Unlike {@link #execute(Request)}, the
+   * response goes through the cache (if any), see {@link #setCache(HttpCache)}.
+   *
+   * @param uri The resource URI.
+   * @return The resource content.
+   * @throws IOException If the request fails.
+   */
+  public HttpContent get(final String uri) throws IOException {
+    return get(uri, 0);
+  }
+
+  /**
+   * GET a metadata resource, like {@link #get(String)}. The response is fresh for the given
+   * number of seconds if the server doesn't set a max-age.
+   *
+   * @param uri The resource URI.
+   * @param defaultMaxAge The max-age in seconds if the server doesn't set one.
+   * @return The resource content.
+   * @throws IOException If the request fails.
+   */
+  public HttpContent get(final String uri, final long defaultMaxAge) throws IOException {
+    HttpCache cache = this.cache;
+    if (cache != null) {
+      return cache.get(this, uri, defaultMaxAge);
+    }
+    return execute(Get(uri)).handleResponse(new ResponseHandler<HttpContent>() {
+      @Override
+      public HttpContent handleResponse(final HttpResponse response)
+          throws ClientProtocolException, IOException {
+        StatusLine statusLine = response.getStatusLine();
+        HttpEntity entity = response.getEntity();
+        return new HttpContent(statusLine.getStatusCode(), statusLine.getReasonPhrase(),
+            entity == null ? "" : EntityUtils.toString(entity, "UTF-8"), false,
+            response.getAllHeaders());
+      }
+    });
+  }
+
+  /**
+   * Set the metadata cache, see {@link #get(String)}.
+   *
+   * @param cache The metadata cache or null for no cache.
+   */
+  public void setCache(final HttpCache cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * The metadata cache, see {@link #get(String)}.
+   *
+   * @return The metadata cache or null.
+   */
+  public HttpCache getCache() {
+    return cache;
+  }
+
+  /**
+   * Set the maximum number of persistent connections per host.
+   *
+   * @param connections The maximum number of connections per host.
+   */
+  public void setConnections(final int connections) {
+    isTrue(connections > 0, "The connections must be greater than zero.");
+    connectionManager.setDefaultMaxPerRoute(connections);
+    connectionManager.setMaxTotal(connections * 4);
+  }
+
+  /**
+   * Set the connect timeout.
+   *
+   * @param millis The connect timeout in millis, zero means no timeout.
+   */
+  public void setConnectTimeout(final int millis) {
+    HttpConnectionParams.setConnectionTimeout(client.getParams(), millis);
+  }
+
+  /**
+   * Set the read timeout.
+   *
+   * @param millis The read timeout in millis, zero means no timeout.
+   */
+  public void setReadTimeout(final int millis) {
+    HttpConnectionParams.setSoTimeout(client.getParams(), millis);
+  }
+
+  /**
+   * The number of requests sent by this transport.
+   *
+   * @return The number of requests sent by this transport.
+   */
+  public long getRequests() {
+    return requests.get();
+  }
+
+  /**
+   * The number of bytes downloaded by this transport.
+   *
+   * @return The number of bytes downloaded by this transport.
+   */
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  /**
+   * Close all the connections.
+   */
+  public void shutdown() {
+    connectionManager.shutdown();
+  }
+
+  @Override
+  public String toString() {
+    return requests + " requests, " + bytes + " bytes";
+  }
+}
@@ -17,13 +17,11 @@ package com.github.jknack.arbor.jam;
 import static org.apache.commons.lang3.StringUtils.join;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.Map;
 
 import com.github.jknack.arbor.UnresolvedDependencyException;
 import com.github.jknack.semver.Semver;
+import com.github.jknack.semver.VersionList;
 
 class JamEntry {
 
@@ -49,18 +47,12 @@ class JamEntry {
     } catch (IllegalArgumentException ex) {
       // ignore this error
     }
-    List<String> versionList = new ArrayList<String>(versions.keySet());
-    Collections.sort(versionList, Semver.DESC);
-    if (Semver.LATEST.text().equals(version)) {
-      return versionList.get(0);
-    }
-    Semver expr = Semver.create(version);
-    for (String candidate : versionList) {
-      if (expr.matches(candidate)) {
-        return candidate;
-      }
+    VersionList versionList = new VersionList(versions.keySet());
+    String candidate = versionList.maxSatisfying(version);
+    if (candidate != null) {
+      return candidate;
     }
     throw new UnresolvedDependencyException("No matches found for: " + name + "@" + version
-        + " in: [" + join(versionList, ", ") + "]");
+        + " in: " + versionList);
   }
 }
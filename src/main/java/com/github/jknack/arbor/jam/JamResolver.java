@@ -15,19 +15,13 @@
 package com.github.jknack.arbor.jam;
 
 import static org.apache.commons.lang3.Validate.notNull;
-import static org.apache.http.client.fluent.Request.Get;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
-import java.util.Map.Entry;
+import java.util.List;
 
-import org.apache.http.HttpResponse;
-import org.apache.http.StatusLine;
-import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpResponseException;
-import org.apache.http.client.ResponseHandler;
-import org.apache.http.util.EntityUtils;
 
 import com.github.jknack.arbor.AbstractResolver;
 import com.github.jknack.arbor.DependencyContext;
@@ -35,7 +29,9 @@ import com.github.jknack.arbor.JsonParser;
 import com.github.jknack.arbor.Module;
 import com.github.jknack.arbor.ModuleId;
 import com.github.jknack.arbor.UnresolvedDependencyException;
+import com.github.jknack.arbor.io.ArtifactStore;
 import com.github.jknack.arbor.io.FileExtractor;
+import com.github.jknack.arbor.io.HttpContent;
 
 public class JamResolver extends AbstractResolver<JamPackage> {
 
@@ -55,24 +51,33 @@ public class JamResolver extends AbstractResolver<JamPackage> {
   }
 
   @Override
-  protected Module newModule(final DependencyContext context, final JamPackage jamPackage,
+  protected Module download(final DependencyContext context, final JamPackage jamPackage,
       final ModuleId moduleId)
       throws IOException {
     // extract and create module
     File moduleHome = context.moduleHome(moduleId);
-    extract(moduleId, moduleHome);
-    Module module = new Module(moduleId, moduleHome, jamPackage.resolveMain(moduleHome));
-
-    // mark as resolved
-    context.put(moduleId, module);
-    // find out dependencies
-    for (Entry<String, String> entry : jamPackage.getDependencies().entrySet()) {
-      Module dependency = resolve(context, new ModuleId(entry.getKey(), entry.getValue()));
-      if (dependency != null) {
-        module.add(dependency);
-      }
+    String main = jamPackage.resolveMain(moduleHome);
+    if (isSelectiveExtraction()) {
+      extract(moduleId, moduleHome, "package.json", main);
+    } else {
+      extract(moduleId, moduleHome);
     }
-    return module;
+    return new Module(moduleId, moduleHome, main);
+  }
+
+  @Override
+  protected List<ModuleId> dependencies(final JamPackage jamPackage, final ModuleId moduleId) {
+    return moduleIds(jamPackage.getDependencies());
+  }
+
+  @Override
+  protected long estimateSize(final JamPackage jamPackage, final ModuleId moduleId) {
+    return ARCHIVE_SIZE;
+  }
+
+  @Override
+  protected String source(final JamPackage jamPackage, final ModuleId moduleId) {
+    return uri + moduleId.getName();
   }
 
   @Override
@@ -80,34 +85,30 @@ public class JamResolver extends AbstractResolver<JamPackage> {
       throws IOException {
     String moduleURI = uri + moduleId.getName();
     logger.debug("GET {}", moduleURI);
-    JamEntry jamEntry = Get(moduleURI).execute().handleResponse(new ResponseHandler<JamEntry>() {
-      @Override
-      public JamEntry handleResponse(final HttpResponse response) throws ClientProtocolException,
-          IOException {
-        StatusLine statusLine = response.getStatusLine();
-        if (statusLine.getStatusCode() >= 300) {
-          throw new UnresolvedDependencyException(moduleId.toString(),
-              new HttpResponseException(
-                  statusLine.getStatusCode(), statusLine.getReasonPhrase()));
-        }
-        String json = EntityUtils.toString(response.getEntity());
-        JamEntry jamEntry = JsonParser.read(json, JamEntry.class);
-        return jamEntry;
-      }
-    });
+    HttpContent content = getTransport().get(moduleURI);
+    if (!content.isSuccess()) {
+      throw new UnresolvedDependencyException(moduleId.toString(),
+          new HttpResponseException(content.getStatusCode(), content.getReasonPhrase()));
+    }
+    JamEntry jamEntry = JsonParser.read(content.getBody(), JamEntry.class);
     String revisionId = jamEntry.resolveVersion(moduleId.getRevision());
     JamPackage jamPackage = jamEntry.getVersion(revisionId);
     return new ResolvedRevision<JamPackage>(jamPackage,
         new ModuleId(moduleId.getName(), revisionId));
   }
 
-  private void extract(final ModuleId moduleId, final File moduleHome) throws IOException {
+  private void extract(final ModuleId moduleId, final File moduleHome, final String... paths)
+      throws IOException {
     String tarName = moduleId.getName() + "-" + moduleId.getRevision() + ".tar.gz";
     String tarballURI = String.format("%s%s/%s", uri, moduleId.getName(), tarName);
     logger.debug("GET {}", tarballURI);
-    File tarball = new File(moduleHome, tarName);
-    Get(tarballURI).execute().saveContent(tarball);
-    FileExtractor.extract(tarball, moduleHome);
-    tarball.delete();
+    ArtifactStore store = getStore();
+    if (store != null) {
+      store.extract(getTransport(), tarballURI, moduleHome, paths);
+    } else if (paths.length > 0) {
+      getTransport().extract(tarballURI, moduleHome, FileExtractor.only(paths));
+    } else {
+      getTransport().extract(tarballURI, moduleHome);
+    }
   }
 }
@@ -19,6 +19,8 @@ import static org.apache.http.client.fluent.Request.Get;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map.Entry;
 
 import org.apache.commons.io.FileUtils;
@@ -35,50 +37,107 @@ import com.github.jknack.arbor.PackageJson;
 import com.github.jknack.arbor.UnresolvedDependencyException;
 import com.github.jknack.arbor.github.GitHub;
 import com.github.jknack.arbor.github.GitHubRepository;
-import com.github.jknack.arbor.io.FileExtractor;
+import com.github.jknack.arbor.io.Archive;
+import com.github.jknack.arbor.io.ArtifactStore;
+import com.github.jknack.arbor.io.HttpTransport;
 import com.github.jknack.semver.Semver;
 
-public class VoloResolver extends AbstractResolver<GitHubRepository> {
+public class VoloResolver extends AbstractResolver<VoloResolver.VoloModule> {
+
+  /**
+   * A GitHub repository and its volo package, if any.
+   *
+   * @author edgar.espina
+   * @since 0.1.0
+   */
+  static class VoloModule {
+    /**
+     * The GitHub repository.
+     */
+    final GitHubRepository repository;
+
+    /**
+     * The volo package or null if the repository must be downloaded as an archive.
+     */
+    final VoloPackage volo;
+
+    /**
+     * Creates a new {@link VoloModule}.
+     *
+     * @param repository The GitHub repository.
+     * @param volo The volo package or null.
+     */
+    VoloModule(final GitHubRepository repository, final VoloPackage volo) {
+      this.repository = repository;
+      this.volo = volo;
+    }
+
+    @Override
+    public String toString() {
+      return repository.toString();
+    }
+  }
 
   private GitHub gitHub = new GitHub();
 
   private GitHubRepository voloRepo = new GitHubRepository("volojs", "repos");
 
+  @Override
+  public void setTransport(final HttpTransport transport) {
+    super.setTransport(transport);
+    gitHub.setTransport(transport);
+    voloRepo.setTransport(transport);
+  }
+
+  @Override
+  public void setStore(final ArtifactStore store) {
+    super.setStore(store);
+    gitHub.setStore(store);
+  }
+
   /**
    * The logging system.
    */
   private final Logger logger = LoggerFactory.getLogger(getClass());
 
+  /**
+   * Download the repository tarball of each module once: <code>package.json</code> is read from
+   * it and modules without a volo URL are extracted from the same tarball, instead of asking
+   * GitHub again.
+   *
+   * @param archiveMode True for archive mode.
+   */
+  public void setArchiveMode(final boolean archiveMode) {
+    gitHub.setArchiveMode(archiveMode);
+  }
+
   @Override
   public String getName() {
     return "volo";
   }
 
   @Override
-  protected Module newModule(final DependencyContext context, final GitHubRepository repository,
+  protected Module download(final DependencyContext context, final VoloModule voloModule,
       final ModuleId moduleId) throws IOException {
-    logger.debug("Using github repo \"{}\" for \"{}\"...", repository, moduleId.getName());
-    // 1st try
-    VoloPackage volo = volo(repository, moduleId.getRevision(), "package.json");
-    if (volo == null) {
-      // 2nd try
-      volo = volo(voloRepo, "master", repository.getId() + "/package.json");
-    }
     File moduleHome = context.moduleHome(moduleId);
-    if (volo == null || isEmpty(volo.getUrl())) {
+    VoloPackage volo = voloModule.volo;
+    if (volo == null) {
       // no luck! unzip it!
-      return extract(repository, moduleId, moduleHome);
+      return extract(voloModule.repository, moduleId, moduleHome);
     }
     String voloUrl = volo.getUrl();
     voloUrl = voloUrl.replace("{version}", moduleId.getRevision());
     // fetch it!
-    Module module = fetch(moduleId, moduleHome, voloUrl);
-
-    // mark as resolved
-    context.put(moduleId, module);
+    return fetch(moduleId, moduleHome, voloUrl);
+  }
 
-    // find out dependencies
-    for (Entry<String, String> entry : volo.getDependencies().entrySet()) {
+  @Override
+  protected List<ModuleId> dependencies(final VoloModule voloModule, final ModuleId moduleId) {
+    List<ModuleId> dependencies = new ArrayList<ModuleId>();
+    if (voloModule.volo == null) {
+      return dependencies;
+    }
+    for (Entry<String, String> entry : voloModule.volo.getDependencies().entrySet()) {
       String depRevId = entry.getValue();
       if (depRevId.startsWith("github:")) {
         depRevId = depRevId.substring("github:".length());
@@ -89,41 +148,67 @@ public class VoloResolver extends AbstractResolver<GitHubRepository> {
       } else {
         depRevId = Semver.LATEST.text();
       }
-      Module dependency = resolve(context, new ModuleId(entry.getKey(), depRevId));
-      if (dependency != null) {
-        module.add(dependency);
-      }
+      dependencies.add(new ModuleId(entry.getKey(), depRevId));
     }
-    return module;
+    return dependencies;
+  }
+
+  @Override
+  protected long estimateSize(final VoloModule voloModule, final ModuleId moduleId) {
+    return voloModule.volo == null ? ARCHIVE_SIZE : FILE_SIZE;
+  }
+
+  @Override
+  protected String source(final VoloModule voloModule, final ModuleId moduleId) {
+    return "https://github.com/" + voloModule.repository.getId();
   }
 
   @Override
-  protected ResolvedRevision<GitHubRepository> doResolve(final ModuleId moduleId)
+  protected ResolvedRevision<VoloModule> doResolve(final ModuleId moduleId)
       throws IOException {
     GitHubRepository repository = gitHub.findRepository(moduleId.getName());
     if (repository == null) {
       throw new UnresolvedDependencyException(moduleId);
     }
     String revisionId = repository.resolveVersion(moduleId.getRevision());
-    return new ResolvedRevision<GitHubRepository>(repository, new ModuleId(moduleId.getName(),
-        revisionId));
+    logger.debug("Using github repo \"{}\" for \"{}\"...", repository, moduleId.getName());
+    // 1st try
+    VoloPackage volo = volo(repository, revisionId, "package.json");
+    if (volo == null) {
+      // 2nd try
+      volo = volo(voloRepo, "master", repository.getId() + "/package.json");
+    }
+    return new ResolvedRevision<VoloModule>(new VoloModule(repository, volo), new ModuleId(
+        moduleId.getName(), revisionId));
   }
 
   private Module extract(final GitHubRepository repository, final ModuleId moduleId,
       final File moduleHome) throws IOException {
-    File tarball = repository.tarball(moduleId.getRevision());
-    FileExtractor.extract(tarball, moduleHome);
-    File packageJsonFile = new File(moduleHome, "package.json");
-    final String main;
-    if (packageJsonFile.exists()) {
-      PackageJson packageJson = JsonParser.read(FileUtils.readFileToString(packageJsonFile),
-          PackageJson.class);
-      main = packageJson.resolveMain(moduleHome);
+    String revision = moduleId.getRevision();
+    if (isSelectiveExtraction()) {
+      // read the tarball once, write the descriptor and main file only
+      Archive archive = repository.archive(revision);
+      String main = main(repository, archive.getString("package.json"), moduleHome);
+      archive.extract(moduleHome, "package.json", main);
+      return new Module(moduleId, moduleHome, main);
+    }
+    if (repository.isArchiveMode()) {
+      repository.archive(revision).extract(moduleHome);
     } else {
-      main = repository.getName() + ".js";
+      repository.extract(revision, moduleHome);
+    }
+    File packageJsonFile = new File(moduleHome, "package.json");
+    String packageJson = packageJsonFile.exists()
+        ? FileUtils.readFileToString(packageJsonFile) : null;
+    return new Module(moduleId, moduleHome, main(repository, packageJson, moduleHome));
+  }
+
+  private static String main(final GitHubRepository repository, final String packageJson,
+      final File moduleHome) throws IOException {
+    if (isEmpty(packageJson)) {
+      return repository.getName() + ".js";
     }
-    Module module = new Module(moduleId, moduleHome, main);
-    return module;
+    return JsonParser.read(packageJson, PackageJson.class).resolveMain(moduleHome);
   }
 
   private VoloPackage volo(final GitHubRepository repository, final String revisionId,
@@ -145,7 +230,7 @@ public class VoloResolver extends AbstractResolver<GitHubRepository> {
     String main = FilenameUtils.getName(voloUrl);
     File localFile = new File(moduleHome, main);
     logger.debug("GET {}", voloUrl);
-    Get(voloUrl).execute().saveContent(localFile);
+    getTransport().execute(Get(voloUrl)).saveContent(localFile);
     return new Module(moduleId, moduleHome, main);
   }
 }
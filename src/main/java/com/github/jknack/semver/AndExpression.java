@@ -16,6 +16,8 @@ package com.github.jknack.semver;
 
 import static org.apache.commons.lang3.Validate.notNull;
 
+import java.util.BitSet;
+
 /**
  * And operator over two expression.
  *
@@ -47,6 +49,10 @@ class AndExpression extends BaseExpression {
 
   @Override
   public boolean matches(final Semver expr) {
+    VersionSet versions = toVersionSet();
+    if (versions != null && expr instanceof Version) {
+      return versions.contains((Version) expr);
+    }
     boolean left = this.left.matches(expr);
     boolean right = this.right.matches(expr);
     return left && right;
@@ -59,6 +65,20 @@ class AndExpression extends BaseExpression {
     return left && right ? 0 : left ? -1 : 1;
   }
 
+  @Override
+  public BitSet evaluate(final VersionIndex index) {
+    BitSet bits = left.evaluate(index);
+    bits.and(right.evaluate(index));
+    return bits;
+  }
+
+  @Override
+  VersionSet compile() {
+    VersionSet left = this.left.toVersionSet();
+    VersionSet right = this.right.toVersionSet();
+    return left == null || right == null ? null : left.intersect(right);
+  }
+
   @Override
   public String text() {
     return left + " " + right;
@@ -24,7 +24,7 @@ abstract class BaseExpression extends Semver {
 
   @Override
   public boolean matches(final String expr) {
-    return matches(ExpressionParser.parse(expr));
+    return matches(Semver.create(expr));
   }
 
   @Override
@@ -0,0 +1,192 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.semver;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded and thread-safe cache of parsed expressions. Expressions are immutable once parsed,
+ * so the same {@link Semver} instance can be shared by all the callers of
+ * {@link Semver#create(String)}. Entries are evicted in insertion order once the cache is full.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+public final class ExpressionCache {
+
+  /**
+   * The default maximum number of entries.
+   */
+  public static final int DEFAULT_MAX_SIZE = 2048;
+
+  /**
+   * The cached expressions.
+   */
+  private final ConcurrentMap<String, Semver> cache;
+
+  /**
+   * The insertion order, used for eviction.
+   */
+  private final Queue<String> order = new ConcurrentLinkedQueue<String>();
+
+  /**
+   * The approximate number of entries (faster than {@link ConcurrentMap#size()}).
+   */
+  private final AtomicInteger size = new AtomicInteger();
+
+  /**
+   * The number of cache hits.
+   */
+  private final AtomicLong hits = new AtomicLong();
+
+  /**
+   * The number of cache misses.
+   */
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * The number of evicted entries.
+   */
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * The maximum number of entries.
+   */
+  private final int maxSize;
+
+  /**
+   * Creates a new {@link ExpressionCache}.
+   *
+   * @param maxSize The maximum number of entries. Must be greater than zero.
+   */
+  ExpressionCache(final int maxSize) {
+    isTrue(maxSize > 0, "The maxSize must be greater than zero.");
+    this.maxSize = maxSize;
+    this.cache = new ConcurrentHashMap<String, Semver>(Math.min(maxSize, 256));
+  }
+
+  /**
+   * Get a parsed expression from the cache or parse it and cache the result.
+   *
+   * @param text A version expression.
+   * @return An expression.
+   */
+  Semver get(final String text) {
+    Semver expr = cache.get(text);
+    if (expr != null) {
+      hits.incrementAndGet();
+      return expr;
+    }
+    misses.incrementAndGet();
+    // parse errors aren't cached, they will be reported again for the same input.
+    expr = Semver.parse(text);
+    Semver existing = cache.putIfAbsent(text, expr);
+    if (existing != null) {
+      // another thread won the race, reuse its instance.
+      return existing;
+    }
+    order.offer(text);
+    if (size.incrementAndGet() > maxSize) {
+      evict();
+    }
+    return expr;
+  }
+
+  /**
+   * Remove the oldest entries until the cache fits in {@link #maxSize}.
+   */
+  private void evict() {
+    while (size.get() > maxSize) {
+      String eldest = order.poll();
+      if (eldest == null) {
+        return;
+      }
+      if (cache.remove(eldest) != null) {
+        size.decrementAndGet();
+        evictions.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Remove all the entries and reset the counters.
+   */
+  public void clear() {
+    cache.clear();
+    order.clear();
+    size.set(0);
+    hits.set(0);
+    misses.set(0);
+    evictions.set(0);
+  }
+
+  /**
+   * The number of cache hits.
+   *
+   * @return The number of cache hits.
+   */
+  public long hits() {
+    return hits.get();
+  }
+
+  /**
+   * The number of cache misses.
+   *
+   * @return The number of cache misses.
+   */
+  public long misses() {
+    return misses.get();
+  }
+
+  /**
+   * The number of evicted entries.
+   *
+   * @return The number of evicted entries.
+   */
+  public long evictions() {
+    return evictions.get();
+  }
+
+  /**
+   * The number of cached entries.
+   *
+   * @return The number of cached entries.
+   */
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * The maximum number of entries.
+   *
+   * @return The maximum number of entries.
+   */
+  public int maxSize() {
+    return maxSize;
+  }
+
+  @Override
+  public String toString() {
+    return "size: " + size() + "/" + maxSize + ", hits: " + hits() + ", misses: " + misses()
+        + ", evictions: " + evictions();
+  }
+}
@@ -34,6 +34,12 @@ abstract class Range extends BaseExpression implements PrefixOperator {
    */
   protected Version right;
 
+  /**
+   * The next major version of the left side expression. Used as upper bound when there isn't a
+   * right side expression.
+   */
+  private Version nextMajor;
+
   /**
    * Creates a new range.
    *
@@ -114,6 +120,9 @@ abstract class Range extends BaseExpression implements PrefixOperator {
 
   @Override
   public boolean matches(final Semver expr) {
+    if (expr instanceof Version) {
+      return toVersionSet().contains((Version) expr);
+    }
     return compareTo(expr) == 0;
   }
 
@@ -121,11 +130,30 @@ abstract class Range extends BaseExpression implements PrefixOperator {
   public int compareTo(final Semver expr) {
     boolean left = expr.compareTo(this.left) >= 0;
     boolean right = this.right == null
-        ? expr.compareTo(this.left.nextMajor()) < 0
+        ? expr.compareTo(nextMajor()) < 0
         : expr.compareTo(this.right) <= 0;
     return left && right ? 0 : left ? -1 : 1;
   }
 
+  @Override
+  VersionSet compile() {
+    return this.right == null
+        ? VersionSet.between(left, true, nextMajor(), false)
+        : VersionSet.between(left, true, right, true);
+  }
+
+  /**
+   * The next major version of the left side expression.
+   *
+   * @return The next major version of the left side expression.
+   */
+  private Version nextMajor() {
+    if (nextMajor == null) {
+      nextMajor = left.nextMajor();
+    }
+    return nextMajor;
+  }
+
   @Override
   public void setExpression(final Semver expression) {
     setLeft((Version) expression);
@@ -138,6 +166,8 @@ abstract class Range extends BaseExpression implements PrefixOperator {
    */
   public void setLeft(final Version left) {
     this.left = left;
+    this.nextMajor = null;
+    invalidate();
   }
 
   /**
@@ -147,6 +177,7 @@ abstract class Range extends BaseExpression implements PrefixOperator {
    */
   public void setRight(final Version right) {
     this.right = right;
+    invalidate();
   }
 
 }
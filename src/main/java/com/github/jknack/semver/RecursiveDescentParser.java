@@ -0,0 +1,420 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.semver;
+
+/**
+ * Hand-written version of {@link ExpressionParser}. It accepts the same grammar and builds the
+ * same expressions, but it works in a single pass over the input, without any parser generation
+ * or per call parse runner.
+ *
+ * <pre>
+ * expression  := factor (ws '||' ws factor)* EOI
+ * factor      := term ws '-'? ws term / term
+ * term        := version / uri / '*'
+ * version     := operator? ws 'v'? number ('.' number ('.' number tail?)?)?
+ * tail        := '-' number tag? / tag
+ * </pre>
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+final class RecursiveDescentParser {
+
+  /**
+   * Valid URI protocols. Order matters.
+   */
+  private static final String[] PROTOCOLS = {"https", "http", "git+shh", "git+https",
+      "git+http", "git" };
+
+  /**
+   * Marker for a missing number.
+   */
+  private static final int NO_NUMBER = -1;
+
+  /**
+   * The input.
+   */
+  private final String input;
+
+  /**
+   * The input length.
+   */
+  private final int length;
+
+  /**
+   * The current position.
+   */
+  private int pos;
+
+  /**
+   * Creates a new {@link RecursiveDescentParser}.
+   *
+   * @param input The input.
+   */
+  private RecursiveDescentParser(final String input) {
+    this.input = input;
+    this.length = input.length();
+  }
+
+  /**
+   * Parse a version expression.
+   *
+   * @param version A version expression.
+   * @return An expression.
+   */
+  public static Semver parse(final String version) {
+    if (version.length() == 0) {
+      return Semver.ANY;
+    }
+    if (Semver.LATEST.text().equals(version)) {
+      return Semver.LATEST;
+    }
+    return new RecursiveDescentParser(version).expression();
+  }
+
+  /**
+   * Deal with version expression.
+   *
+   * @return A version expression.
+   */
+  private Semver expression() {
+    Semver expr = factor();
+    if (expr == null) {
+      throw invalidInput();
+    }
+    while (true) {
+      int mark = pos;
+      ws();
+      if (!consume("||")) {
+        pos = mark;
+        break;
+      }
+      ws();
+      Semver right = factor();
+      if (right == null) {
+        pos = mark;
+        break;
+      }
+      expr = new OrExpression(expr, right);
+    }
+    if (pos != length) {
+      throw invalidInput();
+    }
+    return expr;
+  }
+
+  /**
+   * Matches ranges or a single term.
+   *
+   * @return An expression or null.
+   */
+  private Semver factor() {
+    Semver left = term();
+    if (left == null) {
+      return null;
+    }
+    int mark = pos;
+    ws();
+    consume('-');
+    ws();
+    Semver right = term();
+    if (right == null) {
+      pos = mark;
+      return left;
+    }
+    if (left instanceof Version && right instanceof Version) {
+      return Range.range((Version) left, (Version) right);
+    }
+    return new AndExpression(left, right);
+  }
+
+  /**
+   * Matches version, uri or '*'.
+   *
+   * @return An expression or null.
+   */
+  private Semver term() {
+    int mark = pos;
+    Semver expr = version();
+    if (expr != null) {
+      return expr;
+    }
+    pos = mark;
+    expr = uri();
+    if (expr != null) {
+      return expr;
+    }
+    pos = mark;
+    if (consume('*')) {
+      return Semver.ANY;
+    }
+    return null;
+  }
+
+  /**
+   * Matches a version with an optional prefix operator.
+   *
+   * @return An expression or null.
+   */
+  private Semver version() {
+    PrefixOperator operator = operator();
+    ws();
+    int start = pos;
+    consume('v');
+    if (pos < length && input.charAt(pos) == 'x') {
+      throw new IllegalArgumentException("[x] is not allowed for major: " + input);
+    }
+    int major = number();
+    if (major == NO_NUMBER) {
+      return null;
+    }
+    Version version = new Version();
+    version.setMajor(major);
+    int mark = pos;
+    int minor = consume('.') ? number() : NO_NUMBER;
+    if (minor == NO_NUMBER) {
+      pos = mark;
+    } else {
+      version.setMinor(minor);
+      mark = pos;
+      int incremental = consume('.') ? number() : NO_NUMBER;
+      if (incremental == NO_NUMBER) {
+        pos = mark;
+      } else {
+        version.setIncremental(incremental);
+        tail(version);
+      }
+    }
+    String text = input.substring(start, pos);
+    version.setText(text);
+    Semver expr = version;
+    if (text.indexOf('x') >= 0) {
+      expr = Range.x(expr);
+    }
+    if (operator != null) {
+      if (operator instanceof Range && !(expr instanceof Version)) {
+        throw new IllegalArgumentException("Invalid range: " + input);
+      }
+      operator.setExpression(expr);
+      expr = (Semver) operator;
+    }
+    return expr;
+  }
+
+  /**
+   * Matches a build or tag qualifier.
+   *
+   * @param version The version.
+   */
+  private void tail(final Version version) {
+    int mark = pos;
+    if (consume('-')) {
+      int build = number();
+      if (build != NO_NUMBER) {
+        version.setBuild(build);
+        tag(version);
+        return;
+      }
+    }
+    pos = mark;
+    tag(version);
+  }
+
+  /**
+   * Matches a tag qualifier.
+   *
+   * @param version The version.
+   */
+  private void tag(final Version version) {
+    int start = pos;
+    while (pos < length && isTagChar(input.charAt(pos))) {
+      pos++;
+    }
+    if (pos > start) {
+      version.setTag(input.substring(start, pos));
+    }
+  }
+
+  /**
+   * Matches a prefix operator.
+   *
+   * @return A prefix operator or null.
+   */
+  private PrefixOperator operator() {
+    if (pos == length) {
+      return null;
+    }
+    char ch = input.charAt(pos);
+    switch (ch) {
+      case '=':
+        pos++;
+        return RelationalOp.eq();
+      case '>':
+        pos++;
+        return consume('=') ? RelationalOp.gtEq() : RelationalOp.gt();
+      case '<':
+        pos++;
+        return consume('=') ? RelationalOp.ltEq() : RelationalOp.lt();
+      case '~':
+        pos++;
+        return Range.tilde();
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Matches an URI.
+   *
+   * @return An URI expression or null.
+   */
+  private Semver uri() {
+    int start = pos;
+    String protocol = null;
+    for (String candidate : PROTOCOLS) {
+      if (input.startsWith(candidate, pos)) {
+        protocol = candidate;
+        break;
+      }
+    }
+    if (protocol == null) {
+      return null;
+    }
+    pos += protocol.length();
+    if (!consume("://")) {
+      return null;
+    }
+    int partStart = pos;
+    while (pos < length && isUriChar(input.charAt(pos))) {
+      pos++;
+    }
+    if (pos == partStart) {
+      return null;
+    }
+    return new UrlExpression(input.substring(start, pos));
+  }
+
+  /**
+   * Matches a number or 'x'. If the number is 'x', zero will be returned.
+   *
+   * @return A number or {@link #NO_NUMBER}.
+   */
+  private int number() {
+    if (pos == length) {
+      return NO_NUMBER;
+    }
+    char ch = input.charAt(pos);
+    if (ch == 'x' || ch == 'X') {
+      pos++;
+      return 0;
+    }
+    long value = 0;
+    int start = pos;
+    while (pos < length) {
+      ch = input.charAt(pos);
+      if (ch < '0' || ch > '9') {
+        break;
+      }
+      value = value * 10 + (ch - '0');
+      if (value > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Number too large: " + input);
+      }
+      pos++;
+    }
+    return pos == start ? NO_NUMBER : (int) value;
+  }
+
+  /**
+   * Skip whitespaces.
+   */
+  private void ws() {
+    while (pos < length) {
+      char ch = input.charAt(pos);
+      if (ch != ' ' && ch != '\t') {
+        return;
+      }
+      pos++;
+    }
+  }
+
+  /**
+   * Consume the given char if present.
+   *
+   * @param ch The expected char.
+   * @return True if the char was consumed.
+   */
+  private boolean consume(final char ch) {
+    if (pos < length && input.charAt(pos) == ch) {
+      pos++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Consume the given text if present.
+   *
+   * @param text The expected text.
+   * @return True if the text was consumed.
+   */
+  private boolean consume(final String text) {
+    if (input.startsWith(text, pos)) {
+      pos += text.length();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Creates an error for the current position.
+   *
+   * @return An error for the current position.
+   */
+  private IllegalArgumentException invalidInput() {
+    String found = pos < length ? "'" + input.charAt(pos) + "'" : "EOI";
+    return new IllegalArgumentException("Invalid input " + found + " (line 1, pos " + (pos + 1)
+        + "):\n" + input);
+  }
+
+  /**
+   * True for chars allowed in a tag.
+   *
+   * @param ch The candidate char.
+   * @return True for chars allowed in a tag.
+   */
+  private static boolean isTagChar(final char ch) {
+    return isAlphanumeric(ch) || ch == '.' || ch == '-';
+  }
+
+  /**
+   * True for chars allowed in an URI.
+   *
+   * @param ch The candidate char.
+   * @return True for chars allowed in an URI.
+   */
+  private static boolean isUriChar(final char ch) {
+    return isAlphanumeric(ch) || "-+&@/%#?=~_|!:,.;".indexOf(ch) >= 0;
+  }
+
+  /**
+   * True for [a-zA-Z0-9].
+   *
+   * @param ch The candidate char.
+   * @return True for [a-zA-Z0-9].
+   */
+  private static boolean isAlphanumeric(final char ch) {
+    return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9');
+  }
+}
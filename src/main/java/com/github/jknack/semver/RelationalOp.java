@@ -34,6 +34,11 @@ abstract class RelationalOp extends BaseExpression implements
       return compareTo(expr) == 0;
     }
 
+    @Override
+    VersionSet compile(final Version version) {
+      return VersionSet.exactly(version);
+    }
+
     @Override
     public String text() {
       return "=" + expression;
@@ -56,6 +61,11 @@ abstract class RelationalOp extends BaseExpression implements
       return compareTo(expr) < 0;
     }
 
+    @Override
+    VersionSet compile(final Version version) {
+      return VersionSet.lowerThan(version, false);
+    }
+
     @Override
     public String text() {
       return "<" + expression;
@@ -78,6 +88,11 @@ abstract class RelationalOp extends BaseExpression implements
       return compareTo(expr) <= 0;
     }
 
+    @Override
+    VersionSet compile(final Version version) {
+      return VersionSet.lowerThan(version, true);
+    }
+
     @Override
     public String text() {
       return "<=" + expression;
@@ -100,6 +115,11 @@ abstract class RelationalOp extends BaseExpression implements
       return compareTo(expr) > 0;
     }
 
+    @Override
+    VersionSet compile(final Version version) {
+      return VersionSet.greaterThan(version, false);
+    }
+
     @Override
     public String text() {
       return ">" + expression;
@@ -122,6 +142,11 @@ abstract class RelationalOp extends BaseExpression implements
       return compareTo(expr) >= 0;
     }
 
+    @Override
+    VersionSet compile(final Version version) {
+      return VersionSet.greaterThan(version, true);
+    }
+
     @Override
     public String text() {
       return ">=" + expression;
@@ -141,6 +166,7 @@ abstract class RelationalOp extends BaseExpression implements
   @Override
   public void setExpression(final Semver expr) {
     expression = expr;
+    invalidate();
   }
 
   @Override
@@ -148,6 +174,19 @@ abstract class RelationalOp extends BaseExpression implements
     return expr.compareTo(expression);
   }
 
+  @Override
+  VersionSet compile() {
+    return expression instanceof Version ? compile((Version) expression) : null;
+  }
+
+  /**
+   * Compile this operator into a {@link VersionSet}.
+   *
+   * @param version The operator's version.
+   * @return A version set.
+   */
+  abstract VersionSet compile(Version version);
+
   /**
    * Creates a new less than operator.
    *
@@ -14,7 +14,12 @@
  */
 package com.github.jknack.semver;
 
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 
 /**
  * A semantic version.
@@ -40,6 +45,31 @@ import java.util.Comparator;
  */
 public abstract class Semver implements Comparable<Semver> {
 
+  /**
+   * Cache of parsed expressions. The size can be set with the <code>semver.cache.size</code>
+   * system property.
+   */
+  private static final ExpressionCache CACHE = new ExpressionCache(Integer.getInteger(
+      "semver.cache.size", ExpressionCache.DEFAULT_MAX_SIZE));
+
+  /**
+   * True, if expressions should be parsed with the Parboiled parser. The hand-written parser is
+   * used by default. Set the <code>semver.parser</code> system property to
+   * <code>parboiled</code> for switching back to the Parboiled parser.
+   */
+  private static final boolean PARBOILED = "parboiled".equals(System
+      .getProperty("semver.parser"));
+
+  /**
+   * The compiled version of this expression.
+   */
+  private volatile VersionSet versionSet;
+
+  /**
+   * True, if the {@link #versionSet} has been compiled.
+   */
+  private volatile boolean compiled;
+
   public static enum Type {
     ANY, AND, OR, RANGE, TILDE, X_RANGE, EQ, GT, GT_EQ, LT, LT_EQ, URL, STATIC, LATEST;
   }
@@ -101,6 +131,11 @@ public abstract class Semver implements Comparable<Semver> {
       return true;
     }
 
+    @Override
+    VersionSet compile() {
+      return VersionSet.ALL;
+    }
+
     @Override
     public int compareTo(final Semver expr) {
       return 0;
@@ -141,6 +176,62 @@ public abstract class Semver implements Comparable<Semver> {
   @Override
   public abstract int compareTo(Semver expr);
 
+  /**
+   * The set of versions matched by this expression. Expressions are compiled once, so matching a
+   * version against the returned set is a binary search over the set bounds.
+   *
+   * @return The set of versions matched by this expression or null if the expression doesn't
+   *         represent a set of versions (like URLs or <code>latest</code>).
+   */
+  public VersionSet toVersionSet() {
+    if (!compiled) {
+      versionSet = compile();
+      compiled = true;
+    }
+    return versionSet;
+  }
+
+  /**
+   * Forget the compiled version of this expression, see {@link #toVersionSet()}. Every mutator
+   * must call it.
+   */
+  void invalidate() {
+    compiled = false;
+    versionSet = null;
+  }
+
+  /**
+   * Evaluate this expression against all the versions of an index at once.
+   *
+   * @param index A version index. Required.
+   * @return The bits of the index entries that match this expression.
+   */
+  public BitSet evaluate(final VersionIndex index) {
+    notNull(index, "The index is required.");
+    BitSet bits = new BitSet(index.size());
+    VersionSet versions = toVersionSet();
+    if (versions != null) {
+      versions.select(index, bits);
+    } else {
+      // not a version set, do it the slow way
+      for (int i = 0; i < index.size(); i++) {
+        if (matches(index.version(i))) {
+          bits.set(i);
+        }
+      }
+    }
+    return bits;
+  }
+
+  /**
+   * Compile this expression into a {@link VersionSet}.
+   *
+   * @return A version set or null if the expression doesn't represent a set of versions.
+   */
+  VersionSet compile() {
+    return null;
+  }
+
   public abstract boolean isStatic();
 
   public abstract String text();
@@ -159,6 +250,48 @@ public abstract class Semver implements Comparable<Semver> {
    * @return An expression.
    */
   public static Semver create(final String version) {
-    return ExpressionParser.parse(version);
+    return CACHE.get(version);
+  }
+
+  /**
+   * Find the highest candidate that matches the given expression. Each candidate is parsed once.
+   *
+   * @param expr A version expression. Required.
+   * @param candidates The candidate versions. Required.
+   * @return The highest candidate that matches the given expression or null.
+   * @see VersionList
+   */
+  public static String maxSatisfying(final Semver expr, final Collection<String> candidates) {
+    return new VersionList(candidates).maxSatisfying(expr);
+  }
+
+  /**
+   * Sort the candidates in descending order. Each candidate is parsed once.
+   *
+   * @param candidates The candidate versions. Required.
+   * @return The candidates in descending order.
+   * @see VersionList
+   */
+  public static List<String> sortDescending(final Collection<String> candidates) {
+    return new VersionList(candidates).asList();
+  }
+
+  /**
+   * The expression cache used by {@link #create(String)}.
+   *
+   * @return The expression cache used by {@link #create(String)}.
+   */
+  public static ExpressionCache cache() {
+    return CACHE;
+  }
+
+  /**
+   * Parse a version expression without looking at the cache.
+   *
+   * @param version A version expression.
+   * @return An expression.
+   */
+  static Semver parse(final String version) {
+    return PARBOILED ? ExpressionParser.parse(version) : RecursiveDescentParser.parse(version);
   }
 }
@@ -25,6 +25,26 @@ import java.util.List;
  */
 class Version extends BaseExpression {
 
+  /**
+   * The tag rank of versions without a tag.
+   */
+  private static final long NO_TAG = Long.MAX_VALUE;
+
+  /**
+   * Max value of a packed qualifier.
+   */
+  private static final int MAX_PACKED = 0xFFFF;
+
+  /**
+   * Number of chars packed in a tag rank.
+   */
+  private static final int TAG_RANK_CHARS = 8;
+
+  /**
+   * Max value of a char packed in a tag rank.
+   */
+  private static final char MAX_RANK_CHAR = 0x7E;
+
   /**
    * The major qualifier.
    */
@@ -55,6 +75,35 @@ class Version extends BaseExpression {
    */
   private String text;
 
+  /**
+   * The major, minor, incremental and build qualifiers packed in a long (16 bits each). The sign
+   * bit is flipped, so a signed comparison of two keys matches the numeric order.
+   */
+  private long key = Long.MIN_VALUE;
+
+  /**
+   * True, if one of the numeric qualifiers doesn't fit in 16 bits. The {@link #key} isn't used
+   * for wide versions.
+   */
+  private boolean wide;
+
+  /**
+   * The rank of the tag: up to the first 8 chars of the (case insensitive) tag, packed in a long.
+   * Versions without a tag have the highest rank.
+   */
+  private long tagRank = NO_TAG;
+
+  /**
+   * True, if the {@link #tagRank} isn't enough for comparing tags and the full tag must be
+   * compared.
+   */
+  private boolean longTag;
+
+  /**
+   * The hash code.
+   */
+  private int hash;
+
   /**
    * Creates a new version.
    *
@@ -69,6 +118,7 @@ class Version extends BaseExpression {
     this.major = major;
     this.minor = minor;
     this.incremental = incremental;
+    pack();
   }
 
   /**
@@ -89,34 +139,59 @@ class Version extends BaseExpression {
    * @return If this > that, 1. If that > this -1. If this == that, 0.
    */
   public int compareTo(final Version that) {
-    int result = 0;
     if (this == that) {
-      return result;
+      return 0;
     }
-    result = major - that.major;
-    if (result != 0) {
-      return result;
+    if (wide || that.wide) {
+      int result = compareQualifiers(that);
+      if (result != 0) {
+        return result;
+      }
+    } else if (key != that.key) {
+      return key < that.key ? -1 : 1;
+    }
+    // tag
+    if ((longTag || that.longTag) && tag != null && that.tag != null) {
+      // the ranks are truncated or clamped, they might not tell the order
+      return tag.compareToIgnoreCase(that.tag);
     }
-    result = minor - that.minor;
+    if (tagRank != that.tagRank) {
+      return tagRank < that.tagRank ? -1 : 1;
+    }
+    return 0;
+  }
+
+  /**
+   * Compare the numeric qualifiers one by one. Required for wide versions only.
+   *
+   * @param that The other version.
+   * @return If this > that, 1. If that > this -1. If this == that, 0.
+   */
+  private int compareQualifiers(final Version that) {
+    int result = compare(major, that.major);
     if (result != 0) {
       return result;
     }
-    result = incremental - that.incremental;
+    result = compare(minor, that.minor);
     if (result != 0) {
       return result;
     }
-    result = build - that.build;
+    result = compare(incremental, that.incremental);
     if (result != 0) {
       return result;
     }
-    // tag
-    if (tag == null) {
-      return that.tag == null ? 0 : 1;
-    }
-    if (that.tag == null) {
-      return -1;
-    }
-    return tag.compareToIgnoreCase(that.tag);
+    return compare(build, that.build);
+  }
+
+  /**
+   * Compare two ints.
+   *
+   * @param x The first int.
+   * @param y The second int.
+   * @return If x > y, 1. If y > x -1. If x == y, 0.
+   */
+  private static int compare(final int x, final int y) {
+    return x < y ? -1 : (x == y ? 0 : 1);
   }
 
   @Override
@@ -129,7 +204,7 @@ class Version extends BaseExpression {
 
   @Override
   public int hashCode() {
-    return text.hashCode();
+    return hash;
   }
 
   @Override
@@ -137,6 +212,77 @@ class Version extends BaseExpression {
     return this.equals(expr);
   }
 
+  @Override
+  VersionSet compile() {
+    return VersionSet.exactly(this);
+  }
+
+  /**
+   * The packed major, minor, incremental and build qualifiers. Only valid for
+   * {@link #isPacked() packed} versions.
+   *
+   * @return The packed qualifiers.
+   */
+  long key() {
+    return key;
+  }
+
+  /**
+   * The rank of the tag. Only valid for {@link #isPacked() packed} versions.
+   *
+   * @return The rank of the tag.
+   */
+  long tagRank() {
+    return tagRank;
+  }
+
+  /**
+   * True, if the {@link #key()} and {@link #tagRank()} are enough for comparing this version.
+   *
+   * @return True, if the {@link #key()} and {@link #tagRank()} are enough for comparing this
+   *         version.
+   */
+  boolean isPacked() {
+    return !wide && !longTag;
+  }
+
+  /**
+   * Compute the ordering key, tag rank and hash code. It must be called every time a qualifier
+   * changes.
+   */
+  private void pack() {
+    invalidate();
+    wide = (major | minor | incremental | build) < 0 || major > MAX_PACKED
+        || minor > MAX_PACKED || incremental > MAX_PACKED || build > MAX_PACKED;
+    key = (((long) major << 48) | ((long) minor << 32) | ((long) incremental << 16) | build)
+        ^ Long.MIN_VALUE;
+    int hash = (((major * 31) + minor) * 31 + incremental) * 31 + build;
+    if (tag == null) {
+      tagRank = NO_TAG;
+      longTag = false;
+    } else {
+      // Same char folding as String#compareToIgnoreCase
+      long rank = 0;
+      boolean longTag = tag.length() > TAG_RANK_CHARS;
+      int tagHash = 0;
+      for (int i = 0; i < tag.length(); i++) {
+        char ch = Character.toLowerCase(Character.toUpperCase(tag.charAt(i)));
+        tagHash = tagHash * 31 + ch;
+        if (i < TAG_RANK_CHARS) {
+          if (ch == 0 || ch > MAX_RANK_CHAR) {
+            longTag = true;
+            ch = ch == 0 ? ch : MAX_RANK_CHAR;
+          }
+          rank |= (long) ch << (8 * (TAG_RANK_CHARS - 1 - i));
+        }
+      }
+      tagRank = rank;
+      this.longTag = longTag;
+      hash = hash * 31 + tagHash;
+    }
+    this.hash = hash;
+  }
+
   /**
    * Find the next major version of this one.
    *
@@ -233,6 +379,7 @@ class Version extends BaseExpression {
    */
   public void setBuild(final int build) {
     this.build = build;
+    pack();
   }
 
   /**
@@ -242,6 +389,7 @@ class Version extends BaseExpression {
    */
   public void setIncremental(final int incremental) {
     this.incremental = incremental;
+    pack();
   }
 
   /**
@@ -251,6 +399,7 @@ class Version extends BaseExpression {
    */
   public void setMajor(final int major) {
     this.major = major;
+    pack();
   }
 
   /**
@@ -260,6 +409,7 @@ class Version extends BaseExpression {
    */
   public void setMinor(final int minor) {
     this.minor = minor;
+    pack();
   }
 
   /**
@@ -269,6 +419,7 @@ class Version extends BaseExpression {
    */
   public void setTag(final String tag) {
     this.tag = tag;
+    pack();
   }
 
   /**
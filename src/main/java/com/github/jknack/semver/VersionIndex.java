@@ -0,0 +1,233 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.semver;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable index of the versions of a package, sorted in ascending order and backed by
+ * primitive arrays. Expressions are evaluated against the whole index at once with
+ * {@link Semver#evaluate(VersionIndex)}, which returns the bits of the matching entries.
+ * Candidates that aren't versions are ignored.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+public final class VersionIndex {
+
+  /**
+   * Sort versions in ascending order.
+   */
+  private static final Comparator<Version> ASC = new Comparator<Version>() {
+    @Override
+    public int compare(final Version v1, final Version v2) {
+      return v1.compareTo(v2);
+    }
+  };
+
+  /**
+   * The sorted versions.
+   */
+  private final Version[] versions;
+
+  /**
+   * The packed qualifiers of each version.
+   */
+  private final long[] keys;
+
+  /**
+   * The tag rank of each version.
+   */
+  private final long[] tagRanks;
+
+  /**
+   * True, for versions that can be compared using {@link #keys} and {@link #tagRanks}.
+   */
+  private final BitSet packed;
+
+  /**
+   * Creates a new {@link VersionIndex}.
+   *
+   * @param candidates The candidate versions. Required.
+   */
+  public VersionIndex(final Collection<String> candidates) {
+    notNull(candidates, "The candidates are required.");
+    List<Version> versions = new ArrayList<Version>(candidates.size());
+    for (String candidate : candidates) {
+      try {
+        Semver expr = Semver.create(candidate);
+        if (expr instanceof Version) {
+          versions.add((Version) expr);
+        }
+      } catch (IllegalArgumentException ex) {
+        // not a version, ignore it
+      }
+    }
+    Collections.sort(versions, ASC);
+    this.versions = versions.toArray(new Version[versions.size()]);
+    this.keys = new long[this.versions.length];
+    this.tagRanks = new long[this.versions.length];
+    this.packed = new BitSet(this.versions.length);
+    for (int i = 0; i < this.versions.length; i++) {
+      Version version = this.versions[i];
+      keys[i] = version.key();
+      tagRanks[i] = version.tagRank();
+      packed.set(i, version.isPacked());
+    }
+  }
+
+  /**
+   * The number of versions.
+   *
+   * @return The number of versions.
+   */
+  public int size() {
+    return versions.length;
+  }
+
+  /**
+   * The text of the version at the given position.
+   *
+   * @param index A position.
+   * @return The text of the version at the given position.
+   */
+  public String get(final int index) {
+    return versions[index].text();
+  }
+
+  /**
+   * The highest version of the given entries.
+   *
+   * @param bits The entries, usually the result of {@link Semver#evaluate(VersionIndex)}.
+   * @return The highest version of the given entries or null if there isn't any.
+   */
+  public String max(final BitSet bits) {
+    int last = Math.min(bits.length(), versions.length) - 1;
+    // no BitSet#previousSetBit in Java 6
+    for (int index = last; index >= 0; index--) {
+      if (bits.get(index)) {
+        return get(index);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The versions of the given entries, in ascending order.
+   *
+   * @param bits The entries, usually the result of {@link Semver#evaluate(VersionIndex)}.
+   * @return The versions of the given entries.
+   */
+  public List<String> select(final BitSet bits) {
+    List<String> result = new ArrayList<String>(bits.cardinality());
+    for (int i = bits.nextSetBit(0); i >= 0 && i < versions.length; i = bits.nextSetBit(i + 1)) {
+      result.add(get(i));
+    }
+    return result;
+  }
+
+  /**
+   * Evaluate all the expressions and keep the entries that match every one of them.
+   *
+   * @param expressions The expressions. Required.
+   * @return The bits of the index entries that match all the expressions.
+   */
+  public BitSet evaluateAll(final Collection<Semver> expressions) {
+    notNull(expressions, "The expressions are required.");
+    BitSet bits = new BitSet(versions.length);
+    bits.set(0, versions.length);
+    for (Semver expr : expressions) {
+      if (bits.isEmpty()) {
+        break;
+      }
+      bits.and(expr.evaluate(this));
+    }
+    return bits;
+  }
+
+  /**
+   * The version at the given position.
+   *
+   * @param index A position.
+   * @return The version at the given position.
+   */
+  Version version(final int index) {
+    return versions[index];
+  }
+
+  /**
+   * Find the first version above the given bound.
+   *
+   * @param bound The bound.
+   * @param inclusive True, if versions equal to the bound are included.
+   * @return The position of the first version above the given bound or {@link #size()}.
+   */
+  int firstAbove(final Version bound, final boolean inclusive) {
+    int low = 0;
+    int high = versions.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = compare(mid, bound);
+      if (cmp > 0 || cmp == 0 && inclusive) {
+        high = mid - 1;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Compare the version at the given position with another version.
+   *
+   * @param index A position.
+   * @param version A version.
+   * @return If version[index] > version, 1. If version > version[index] -1. If equals, 0.
+   */
+  private int compare(final int index, final Version version) {
+    if (packed.get(index) && version.isPacked()) {
+      long key = version.key();
+      if (keys[index] != key) {
+        return keys[index] < key ? -1 : 1;
+      }
+      long tagRank = version.tagRank();
+      return tagRanks[index] == tagRank ? 0 : tagRanks[index] < tagRank ? -1 : 1;
+    }
+    return versions[index].compareTo(version);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(versions);
+  }
+
+  /**
+   * Creates a {@link VersionIndex}.
+   *
+   * @param candidates The candidate versions.
+   * @return A new {@link VersionIndex}.
+   */
+  public static VersionIndex of(final String... candidates) {
+    return new VersionIndex(Arrays.asList(candidates));
+  }
+}
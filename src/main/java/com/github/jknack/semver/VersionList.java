@@ -0,0 +1,218 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.semver;
+
+import static org.apache.commons.lang3.StringUtils.join;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An immutable list of candidate versions (like the tags of a repository), sorted in descending
+ * order. Each candidate is parsed once, and {@link #maxSatisfying(Semver)} finds the highest
+ * match with a binary search.
+ * Candidates that aren't versions (invalid versions, URLs, ranges, etc.) are kept at the end of
+ * the list, in their original order.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+public final class VersionList implements Iterable<String> {
+
+  /**
+   * A parsed candidate.
+   *
+   * @author edgar.espina
+   * @since 0.1.0
+   */
+  private static class Candidate {
+    /**
+     * Sort candidates in descending order.
+     */
+    static final Comparator<Candidate> DESC = new Comparator<Candidate>() {
+      @Override
+      public int compare(final Candidate c1, final Candidate c2) {
+        return c2.version.compareTo(c1.version);
+      }
+    };
+
+    /**
+     * The candidate text.
+     */
+    final String text;
+
+    /**
+     * The parsed version.
+     */
+    final Version version;
+
+    /**
+     * Creates a new {@link Candidate}.
+     *
+     * @param text The candidate text.
+     * @param version The parsed version.
+     */
+    Candidate(final String text, final Version version) {
+      this.text = text;
+      this.version = version;
+    }
+  }
+
+  /**
+   * The candidates: versions first, then anything else.
+   */
+  private final List<String> candidates;
+
+  /**
+   * The parsed versions, sorted in descending order.
+   */
+  private final Version[] versions;
+
+  /**
+   * Parsed candidates that aren't versions, null if the candidate isn't a valid expression.
+   */
+  private final Semver[] others;
+
+  /**
+   * Creates a new {@link VersionList}.
+   *
+   * @param candidates The candidate versions. Required.
+   */
+  public VersionList(final Collection<String> candidates) {
+    notNull(candidates, "The candidates are required.");
+    List<Candidate> versions = new ArrayList<Candidate>(candidates.size());
+    List<String> otherNames = new ArrayList<String>();
+    List<Semver> others = new ArrayList<Semver>();
+    for (String candidate : candidates) {
+      Semver expr;
+      try {
+        expr = Semver.create(candidate);
+      } catch (IllegalArgumentException ex) {
+        expr = null;
+      }
+      if (expr instanceof Version) {
+        versions.add(new Candidate(candidate, (Version) expr));
+      } else {
+        otherNames.add(candidate);
+        others.add(expr);
+      }
+    }
+    // stable sort: same order as Semver.DESC
+    Collections.sort(versions, Candidate.DESC);
+    List<String> names = new ArrayList<String>(candidates.size());
+    this.versions = new Version[versions.size()];
+    for (int i = 0; i < this.versions.length; i++) {
+      Candidate candidate = versions.get(i);
+      names.add(candidate.text);
+      this.versions[i] = candidate.version;
+    }
+    names.addAll(otherNames);
+    this.candidates = Collections.unmodifiableList(names);
+    this.others = others.toArray(new Semver[others.size()]);
+  }
+
+  /**
+   * Find the highest candidate that matches the given expression.
+   *
+   * @param expr A version expression. Required.
+   * @return The highest candidate that matches the given expression or null.
+   */
+  public String maxSatisfying(final Semver expr) {
+    notNull(expr, "The expression is required.");
+    if (expr == Semver.LATEST) {
+      return first();
+    }
+    VersionSet versionSet = expr.toVersionSet();
+    if (versionSet != null) {
+      int idx = versionSet.first(versions);
+      return idx < 0 ? null : candidates.get(idx);
+    }
+    // not a version set, do it the slow way
+    for (int i = 0; i < versions.length; i++) {
+      if (expr.matches(versions[i])) {
+        return candidates.get(i);
+      }
+    }
+    for (int i = 0; i < others.length; i++) {
+      if (others[i] != null && expr.matches(others[i])) {
+        return candidates.get(versions.length + i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Find the highest candidate that matches the given expression.
+   *
+   * @param expr A version expression. Required.
+   * @return The highest candidate that matches the given expression or null.
+   */
+  public String maxSatisfying(final String expr) {
+    return maxSatisfying(Semver.create(expr));
+  }
+
+  /**
+   * The highest candidate or null for empty lists.
+   *
+   * @return The highest candidate or null for empty lists.
+   */
+  public String first() {
+    return candidates.isEmpty() ? null : candidates.get(0);
+  }
+
+  /**
+   * The number of candidates.
+   *
+   * @return The number of candidates.
+   */
+  public int size() {
+    return candidates.size();
+  }
+
+  /**
+   * The candidates in descending order.
+   *
+   * @return The candidates in descending order.
+   */
+  public List<String> asList() {
+    return candidates;
+  }
+
+  @Override
+  public Iterator<String> iterator() {
+    return candidates.iterator();
+  }
+
+  @Override
+  public String toString() {
+    return "[" + join(candidates, ", ") + "]";
+  }
+
+  /**
+   * Creates a {@link VersionList}.
+   *
+   * @param candidates The candidate versions.
+   * @return A new {@link VersionList}.
+   */
+  public static VersionList of(final String... candidates) {
+    return new VersionList(Arrays.asList(candidates));
+  }
+}
@@ -0,0 +1,455 @@
+/**
+ * This copy of Woodstox XML processor is licensed under the
+ * Apache (Software) License, version 2.0 ("the License").
+ * See the License for details about distribution rights, and the
+ * specific rights regarding derivate works.
+ *
+ * You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing Woodstox, in file "ASL2.0", under the same directory
+ * as this file.
+ */
+package com.github.jknack.semver;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A normalized set of versions: a sorted list of disjoint version intervals. Every
+ * {@link Semver} expression over versions compiles to a {@link VersionSet} (see
+ * {@link Semver#toVersionSet()}), so matching a version is a binary search over the interval
+ * bounds. Sets are immutable and support union, intersection and emptiness checks.
+ *
+ * @author edgar.espina
+ * @since 0.1.0
+ */
+public final class VersionSet {
+
+  /**
+   * A version interval. A null bound means unbounded.
+   *
+   * @author edgar.espina
+   * @since 0.1.0
+   */
+  private static final class Interval {
+
+    /**
+     * Sort intervals by lower bound.
+     */
+    static final Comparator<Interval> LOWER = new Comparator<Interval>() {
+      @Override
+      public int compare(final Interval i1, final Interval i2) {
+        return compareLower(i1, i2);
+      }
+    };
+
+    /**
+     * The lower bound or null.
+     */
+    final Version lower;
+
+    /**
+     * True if the lower bound is included.
+     */
+    final boolean lowerClosed;
+
+    /**
+     * The upper bound or null.
+     */
+    final Version upper;
+
+    /**
+     * True if the upper bound is included.
+     */
+    final boolean upperClosed;
+
+    /**
+     * Creates a new {@link Interval}.
+     *
+     * @param lower The lower bound or null.
+     * @param lowerClosed True if the lower bound is included.
+     * @param upper The upper bound or null.
+     * @param upperClosed True if the upper bound is included.
+     */
+    Interval(final Version lower, final boolean lowerClosed, final Version upper,
+        final boolean upperClosed) {
+      this.lower = lower;
+      this.lowerClosed = lower != null && lowerClosed;
+      this.upper = upper;
+      this.upperClosed = upper != null && upperClosed;
+    }
+
+    /**
+     * True if the interval has no versions.
+     *
+     * @return True if the interval has no versions.
+     */
+    boolean isEmpty() {
+      if (lower == null || upper == null) {
+        return false;
+      }
+      int cmp = lower.compareTo(upper);
+      return cmp > 0 || cmp == 0 && !(lowerClosed && upperClosed);
+    }
+
+    /**
+     * True if the version is after the lower bound.
+     *
+     * @param version A version.
+     * @return True if the version is after the lower bound.
+     */
+    boolean above(final Version version) {
+      if (lower == null) {
+        return true;
+      }
+      int cmp = version.compareTo(lower);
+      return cmp > 0 || cmp == 0 && lowerClosed;
+    }
+
+    /**
+     * True if the version is before the upper bound.
+     *
+     * @param version A version.
+     * @return True if the version is before the upper bound.
+     */
+    boolean below(final Version version) {
+      if (upper == null) {
+        return true;
+      }
+      int cmp = version.compareTo(upper);
+      return cmp < 0 || cmp == 0 && upperClosed;
+    }
+
+    @Override
+    public String toString() {
+      return (lowerClosed ? "[" : "(") + (lower == null ? "-inf" : lower.text()) + ", "
+          + (upper == null ? "+inf" : upper.text()) + (upperClosed ? "]" : ")");
+    }
+  }
+
+  /**
+   * The empty set.
+   */
+  static final VersionSet EMPTY = new VersionSet(new Interval[0]);
+
+  /**
+   * The set of all the versions.
+   */
+  static final VersionSet ALL = new VersionSet(new Interval[]{
+      new Interval(null, false, null, false) });
+
+  /**
+   * The sorted and disjoint intervals.
+   */
+  private final Interval[] intervals;
+
+  /**
+   * Creates a new {@link VersionSet}.
+   *
+   * @param intervals The sorted and disjoint intervals.
+   */
+  private VersionSet(final Interval[] intervals) {
+    this.intervals = intervals;
+  }
+
+  /**
+   * Creates a set with a single version.
+   *
+   * @param version The version.
+   * @return A set with a single version.
+   */
+  static VersionSet exactly(final Version version) {
+    return between(version, true, version, true);
+  }
+
+  /**
+   * Creates a set of versions greater than the given one.
+   *
+   * @param version The lower bound.
+   * @param inclusive True if the lower bound is included.
+   * @return A set of versions greater than the given one.
+   */
+  static VersionSet greaterThan(final Version version, final boolean inclusive) {
+    return between(notNull(version, "The version is required."), inclusive, null, false);
+  }
+
+  /**
+   * Creates a set of versions lower than the given one.
+   *
+   * @param version The upper bound.
+   * @param inclusive True if the upper bound is included.
+   * @return A set of versions lower than the given one.
+   */
+  static VersionSet lowerThan(final Version version, final boolean inclusive) {
+    return between(null, false, notNull(version, "The version is required."), inclusive);
+  }
+
+  /**
+   * Creates a set of versions between two bounds.
+   *
+   * @param lower The lower bound or null.
+   * @param lowerClosed True if the lower bound is included.
+   * @param upper The upper bound or null.
+   * @param upperClosed True if the upper bound is included.
+   * @return A set of versions between two bounds.
+   */
+  static VersionSet between(final Version lower, final boolean lowerClosed,
+      final Version upper, final boolean upperClosed) {
+    Interval interval = new Interval(lower, lowerClosed, upper, upperClosed);
+    if (interval.isEmpty()) {
+      return EMPTY;
+    }
+    return new VersionSet(new Interval[]{interval });
+  }
+
+  /**
+   * True if the version belongs to this set. Only versions can be members of a set, any other
+   * expression returns false.
+   *
+   * @param version A version.
+   * @return True if the version belongs to this set.
+   */
+  public boolean contains(final Semver version) {
+    return version instanceof Version && contains((Version) version);
+  }
+
+  /**
+   * True if the version belongs to this set.
+   *
+   * @param version A version.
+   * @return True if the version belongs to this set.
+   * @see #contains(Semver)
+   */
+  public boolean contains(final String version) {
+    return contains(Semver.create(version));
+  }
+
+  /**
+   * True if the version belongs to this set.
+   *
+   * @param version A version.
+   * @return True if the version belongs to this set.
+   */
+  boolean contains(final Version version) {
+    // find the last interval that starts before the version
+    int low = 0;
+    int high = intervals.length - 1;
+    int candidate = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (intervals[mid].above(version)) {
+        candidate = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return candidate >= 0 && intervals[candidate].below(version);
+  }
+
+  /**
+   * Set the bits of the index entries that belong to this set.
+   *
+   * @param index A version index.
+   * @param bits The bits to set.
+   */
+  void select(final VersionIndex index, final BitSet bits) {
+    for (Interval interval : intervals) {
+      int from = interval.lower == null ? 0 : index.firstAbove(interval.lower,
+          interval.lowerClosed);
+      int to = interval.upper == null ? index.size() : index.firstAbove(interval.upper,
+          !interval.upperClosed);
+      if (from < to) {
+        bits.set(from, to);
+      }
+    }
+  }
+
+  /**
+   * Find the highest version that belongs to this set.
+   *
+   * @param versions Versions sorted in descending order.
+   * @return The index of the highest version that belongs to this set or <code>-1</code>.
+   */
+  int first(final Version[] versions) {
+    int start = 0;
+    for (int k = intervals.length - 1; k >= 0 && start < versions.length; k--) {
+      Interval interval = intervals[k];
+      // find the first (highest) version before the upper bound
+      int low = start;
+      int high = versions.length - 1;
+      int candidate = versions.length;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        if (interval.below(versions[mid])) {
+          candidate = mid;
+          high = mid - 1;
+        } else {
+          low = mid + 1;
+        }
+      }
+      if (candidate < versions.length && interval.above(versions[candidate])) {
+        return candidate;
+      }
+      start = candidate;
+    }
+    return -1;
+  }
+
+  /**
+   * True if the set has no versions.
+   *
+   * @return True if the set has no versions.
+   */
+  public boolean isEmpty() {
+    return intervals.length == 0;
+  }
+
+  /**
+   * Creates a new set with the versions of this and the given set.
+   *
+   * @param that A version set.
+   * @return A new set with the versions of this and the given set.
+   */
+  public VersionSet union(final VersionSet that) {
+    notNull(that, "The version set is required.");
+    if (isEmpty()) {
+      return that;
+    }
+    if (that.isEmpty()) {
+      return this;
+    }
+    List<Interval> all = new ArrayList<Interval>(intervals.length + that.intervals.length);
+    Collections.addAll(all, intervals);
+    Collections.addAll(all, that.intervals);
+    Collections.sort(all, Interval.LOWER);
+    List<Interval> merged = new ArrayList<Interval>(all.size());
+    Interval current = all.get(0);
+    for (int i = 1; i < all.size(); i++) {
+      Interval next = all.get(i);
+      if (connected(current, next)) {
+        current = compareUpper(current, next) >= 0 ? current
+            : new Interval(current.lower, current.lowerClosed, next.upper, next.upperClosed);
+      } else {
+        merged.add(current);
+        current = next;
+      }
+    }
+    merged.add(current);
+    return new VersionSet(merged.toArray(new Interval[merged.size()]));
+  }
+
+  /**
+   * Creates a new set with the versions that belong to this and the given set.
+   *
+   * @param that A version set.
+   * @return A new set with the versions that belong to this and the given set.
+   */
+  public VersionSet intersect(final VersionSet that) {
+    notNull(that, "The version set is required.");
+    List<Interval> result = new ArrayList<Interval>();
+    int i = 0;
+    int j = 0;
+    while (i < intervals.length && j < that.intervals.length) {
+      Interval left = intervals[i];
+      Interval right = that.intervals[j];
+      Interval lower = compareLower(left, right) >= 0 ? left : right;
+      Interval upper = compareUpper(left, right) <= 0 ? left : right;
+      Interval intersection = new Interval(lower.lower, lower.lowerClosed, upper.upper,
+          upper.upperClosed);
+      if (!intersection.isEmpty()) {
+        result.add(intersection);
+      }
+      // advance the interval that ends first
+      if (upper == left) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    if (result.isEmpty()) {
+      return EMPTY;
+    }
+    return new VersionSet(result.toArray(new Interval[result.size()]));
+  }
+
+  /**
+   * True if the two intervals overlap or touch each other. The first interval must start before
+   * the second one.
+   *
+   * @param first The first interval.
+   * @param second The second interval.
+   * @return True if the two intervals overlap or touch each other.
+   */
+  private static boolean connected(final Interval first, final Interval second) {
+    if (first.upper == null || second.lower == null) {
+      return true;
+    }
+    int cmp = first.upper.compareTo(second.lower);
+    return cmp > 0 || cmp == 0 && (first.upperClosed || second.lowerClosed);
+  }
+
+  /**
+   * Compare the lower bounds of two intervals.
+   *
+   * @param i1 The first interval.
+   * @param i2 The second interval.
+   * @return Less than zero if the first interval starts first.
+   */
+  private static int compareLower(final Interval i1, final Interval i2) {
+    if (i1.lower == null) {
+      return i2.lower == null ? 0 : -1;
+    }
+    if (i2.lower == null) {
+      return 1;
+    }
+    int cmp = i1.lower.compareTo(i2.lower);
+    if (cmp != 0) {
+      return cmp;
+    }
+    // a closed bound starts before an open one
+    return i1.lowerClosed == i2.lowerClosed ? 0 : i1.lowerClosed ? -1 : 1;
+  }
+
+  /**
+   * Compare the upper bounds of two intervals.
+   *
+   * @param i1 The first interval.
+   * @param i2 The second interval.
+   * @return Less than zero if the first interval ends first.
+   */
+  private static int compareUpper(final Interval i1, final Interval i2) {
+    if (i1.upper == null) {
+      return i2.upper == null ? 0 : 1;
+    }
+    if (i2.upper == null) {
+      return -1;
+    }
+    int cmp = i1.upper.compareTo(i2.upper);
+    if (cmp != 0) {
+      return cmp;
+    }
+    // an open bound ends before a closed one
+    return i1.upperClosed == i2.upperClosed ? 0 : i1.upperClosed ? 1 : -1;
+  }
+
+  @Override
+  public String toString() {
+    if (intervals.length == 0) {
+      return "{}";
+    }
+    StringBuilder buffer = new StringBuilder();
+    for (Interval interval : intervals) {
+      buffer.append(" || ").append(interval);
+    }
+    return buffer.substring(" || ".length());
+  }
+}
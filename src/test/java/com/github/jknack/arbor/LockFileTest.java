@@ -0,0 +1,99 @@
+package com.github.jknack.arbor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class LockFileTest {
+
+  static class FakeResolver extends AbstractResolver<String> {
+
+    AtomicInteger lookups = new AtomicInteger();
+
+    AtomicInteger downloads = new AtomicInteger();
+
+    @Override
+    public String getName() {
+      return "fake";
+    }
+
+    @Override
+    protected ResolvedRevision<String> doResolve(final ModuleId moduleId) throws IOException {
+      lookups.incrementAndGet();
+      String revision = moduleId.getRevision().replace("~", "");
+      return new ResolvedRevision<String>("fake://" + moduleId.getName(), new ModuleId(
+          moduleId.getName(), revision));
+    }
+
+    @Override
+    protected Module download(final DependencyContext context, final String descriptor,
+        final ModuleId moduleId) throws IOException {
+      downloads.incrementAndGet();
+      File home = context.moduleHome(moduleId);
+      String main = moduleId.getName() + ".js";
+      FileUtils.write(new File(home, main), "/* " + moduleId + " */");
+      return new Module(moduleId, home, main);
+    }
+  }
+
+  static FakeResolver resolver = new FakeResolver();
+
+  @BeforeClass
+  public static void register() {
+    ResolverRegistry.register(resolver);
+  }
+
+  @Test
+  public void lockAndReuse() throws IOException {
+    File baseDir = new File("target/lock-file/modules");
+    File project = new File("target/lock-file/project");
+    FileUtils.deleteDirectory(baseDir.getParentFile());
+    project.mkdirs();
+    resolver.lookups.set(0);
+    File packageJson = new File(project, "package.json");
+    FileUtils.write(packageJson, "{\"name\": \"demo\", \"version\": \"0.0.0\", "
+        + "\"dependencies\": {\"jquery\": \"~1.8.3\", \"backbone\": \"~0.9.9\"}}");
+
+    Arbor arbor = new Arbor(baseDir);
+    arbor.setResolvers("fake");
+    Module root = arbor.resolve(packageJson);
+    assertEquals(2, root.dependencies().size());
+    assertEquals(2, resolver.lookups.get());
+
+    File lockFile = new File(project, LockFile.FILE_NAME);
+    assertTrue(lockFile.exists());
+    LockFile lock = LockFile.read(lockFile);
+    assertNotNull(lock);
+    assertEquals("1.8.3", lock.getDependencies().get("jquery"));
+    assertEquals(2, lock.getModules().size());
+    assertEquals("fake", lock.getModules().get(0).getResolver());
+    assertEquals("fake://jquery", lock.getModules().get(0).getSource());
+
+    // no lookups at all
+    root = arbor.resolve(packageJson);
+    assertEquals(2, root.dependencies().size());
+    assertEquals(2, resolver.lookups.get());
+
+    // only the missing module
+    FileUtils.deleteDirectory(new File(baseDir, "backbone"));
+    root = arbor.resolve(packageJson);
+    assertEquals(2, root.dependencies().size());
+    assertEquals(3, resolver.lookups.get());
+    assertTrue(new File(baseDir, "backbone/0.9.9/backbone.js").exists());
+
+    // dependencies changed, resolve again
+    FileUtils.write(packageJson, "{\"name\": \"demo\", \"version\": \"0.0.0\", "
+        + "\"dependencies\": {\"jquery\": \"~1.8.3\"}}");
+    root = arbor.resolve(packageJson);
+    assertEquals(1, root.dependencies().size());
+    assertEquals(4, resolver.lookups.get());
+  }
+}
@@ -0,0 +1,186 @@
+package com.github.jknack.arbor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class ModuleIndexTest {
+
+  @Test
+  public void saveAndLoad() throws IOException {
+    File baseDir = newBaseDir("save");
+    ModuleIndex index = ModuleIndex.open(baseDir);
+    assertEquals(0, index.size());
+
+    ModuleId moduleId = new ModuleId("jquery", "1.8.3");
+    newModule(baseDir, moduleId).save(index);
+
+    assertEquals(1, index.size());
+    assertEquals(new File(baseDir, "jquery/1.8.3/jquery.js").getAbsoluteFile(),
+        index.find(moduleId));
+    Module module = index.load(moduleId);
+    assertNotNull(module);
+    assertEquals(moduleId, module.getId());
+    assertNull(index.find(new ModuleId("jquery", "1.8.2")));
+  }
+
+  @Test
+  public void rebuild() throws IOException {
+    File baseDir = newBaseDir("rebuild");
+    ModuleId jquery = new ModuleId("jquery", "1.8.3");
+    ModuleId backbone = new ModuleId("backbone", "0.9.9");
+    // no index yet
+    newModule(baseDir, jquery).save();
+    newModule(baseDir, backbone).save();
+
+    ModuleIndex index = ModuleIndex.open(baseDir);
+    assertEquals(2, index.size());
+    assertNotNull(index.load(jquery));
+    assertNotNull(index.load(backbone));
+    assertEquals(true, new File(baseDir, ModuleIndex.FILE_NAME).exists());
+  }
+
+  @Test
+  public void shrunkIndex() throws IOException {
+    File baseDir = newBaseDir("shrunk");
+    File file = new File(baseDir, ModuleIndex.FILE_NAME);
+    ModuleIndex index = ModuleIndex.open(baseDir);
+    ModuleId jquery = new ModuleId("jquery", "1.8.3");
+    ModuleId backbone = new ModuleId("backbone", "0.9.9");
+    newModule(baseDir, jquery).save(index);
+    byte[] snapshot = FileUtils.readFileToByteArray(file);
+    newModule(baseDir, backbone).save(index);
+    assertEquals(2, index.size());
+
+    // rewritten by another process
+    FileUtils.writeByteArrayToFile(file, snapshot);
+    // a miss reads the index again
+    assertNull(index.find(new ModuleId("underscore", "1.4.3")));
+    assertEquals(1, index.size());
+    assertNull(index.find(backbone));
+    assertNotNull(index.find(jquery));
+  }
+
+  @Test
+  public void sharedHome() throws IOException {
+    File baseDir = newBaseDir("shared-home");
+    ModuleIndex index = ModuleIndex.open(baseDir);
+    File home = new File(baseDir, "com/host");
+    ModuleId jquery = new ModuleId("jquery", "http://host.com/jquery.js");
+    ModuleId underscore = new ModuleId("underscore", "http://host.com/underscore.js");
+    FileUtils.write(new File(home, "jquery.js"), "/* jquery */");
+    FileUtils.write(new File(home, "underscore.js"), "/* underscore */");
+    new Module(jquery, home, "jquery.js").save(index);
+    new Module(underscore, home, "underscore.js").save(index);
+
+    // module.json belongs to underscore now, as seen by the next run
+    ModuleIndex next = new ModuleIndex(baseDir);
+    assertNull(next.load(jquery));
+    assertEquals("underscore.js", next.load(underscore).getMain());
+  }
+
+  @Test
+  public void deletedModule() throws IOException {
+    File baseDir = newBaseDir("deleted");
+    ModuleIndex index = ModuleIndex.open(baseDir);
+    ModuleId moduleId = new ModuleId("jquery", "1.8.3");
+    newModule(baseDir, moduleId).save(index);
+
+    FileUtils.deleteDirectory(new File(baseDir, "jquery"));
+    assertNull(index.load(moduleId));
+    assertEquals(0, index.size());
+  }
+
+  @Test
+  public void normalizedDescriptor() throws IOException {
+    File baseDir = newBaseDir("normalized");
+    ModuleIndex index = ModuleIndex.open(baseDir);
+    ModuleId jquery = new ModuleId("jquery", "1.8.3");
+    ModuleId underscore = new ModuleId("underscore", "1.4.3");
+    ModuleId backbone = new ModuleId("backbone", "0.9.9");
+    Module jqueryModule = newModule(baseDir, jquery);
+    jqueryModule.save(index);
+    Module underscoreModule = newModule(baseDir, underscore);
+    underscoreModule.save(index);
+    Module backboneModule = newModule(baseDir, backbone);
+    backboneModule.add(jqueryModule);
+    backboneModule.add(underscoreModule);
+    backboneModule.save(index);
+
+    String json = FileUtils.readFileToString(new File(baseDir, "backbone/0.9.9/"
+        + Module.DESCRIPTOR));
+    // ids only, no nested modules
+    assertEquals(false, json.contains("\"home\" : \"" + jqueryModule.getHome()));
+    assertEquals(Arrays.asList(jquery, underscore), JsonParser.read(json, Module.class)
+        .getRequires());
+
+    // same instances
+    Module loaded = index.load(backbone);
+    assertSame(backboneModule, loaded);
+    assertEquals(Arrays.asList(jqueryModule, underscoreModule), loaded.dependencies());
+  }
+
+  @Test
+  public void lazyLinking() throws IOException {
+    File baseDir = newBaseDir("linking");
+    ModuleId jquery = new ModuleId("jquery", "1.8.3");
+    ModuleId backbone = new ModuleId("backbone", "0.9.9");
+    newModule(baseDir, jquery).save();
+    Module backboneModule = newModule(baseDir, backbone);
+    backboneModule.add(newModule(baseDir, jquery));
+    backboneModule.save();
+
+    ModuleIndex index = ModuleIndex.open(baseDir);
+    Module loaded = index.load(backbone);
+    Module dependency = loaded.dependencies().get(0);
+    assertEquals(jquery, dependency.getId());
+    assertSame(index.load(jquery), dependency);
+  }
+
+  @Test
+  public void legacyDescriptor() throws IOException {
+    File baseDir = newBaseDir("legacy");
+    Module backbone = newModule(baseDir, new ModuleId("backbone", "0.9.9"));
+    Module jquery = newModule(baseDir, new ModuleId("jquery", "1.8.3"));
+    FileUtils.write(new File(backbone.getHome(), Module.DESCRIPTOR), "{\n"
+        + "  \"id\" : {\"name\" : \"backbone\", \"revision\" : \"0.9.9\"},\n"
+        + "  \"dependencies\" : [ {\n"
+        + "    \"id\" : {\"name\" : \"jquery\", \"revision\" : \"1.8.3\"},\n"
+        + "    \"dependencies\" : [ ],\n"
+        + "    \"home\" : \"" + jquery.getHome().getAbsolutePath() + "\",\n"
+        + "    \"main\" : \"jquery.js\"\n"
+        + "  } ],\n"
+        + "  \"home\" : \"" + backbone.getHome().getAbsolutePath() + "\",\n"
+        + "  \"main\" : \"backbone.js\"\n"
+        + "}");
+
+    Module loaded = ModuleIndex.open(baseDir).load(backbone.getId());
+    assertEquals(Arrays.asList(jquery.getId()), loaded.getRequires());
+    assertEquals(jquery.getLocalFile().getAbsoluteFile(), loaded.dependencies().get(0)
+        .getLocalFile());
+  }
+
+  private static Module newModule(final File baseDir, final ModuleId moduleId)
+      throws IOException {
+    File home = new File(baseDir, moduleId.getName() + "/" + moduleId.getRevision());
+    home.mkdirs();
+    String main = moduleId.getName() + ".js";
+    FileUtils.write(new File(home, main), "/* " + moduleId + " */");
+    return new Module(moduleId, home, main);
+  }
+
+  private static File newBaseDir(final String name) throws IOException {
+    File baseDir = new File("target/module-index/" + name);
+    FileUtils.deleteDirectory(baseDir);
+    baseDir.mkdirs();
+    return baseDir;
+  }
+}
@@ -0,0 +1,100 @@
+package com.github.jknack.arbor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class ModuleTest {
+
+  @Test
+  public void incrementalCopy() throws IOException {
+    File dir = new File("target/copy-strategy");
+    FileUtils.deleteDirectory(dir);
+    Module root = module(dir, "app", "1.0.0");
+    Module jquery = module(dir, "jquery", "1.8.3");
+    root.add(jquery);
+    root.add(module(dir, "underscore", "1.4.3"));
+    File webapp = new File(dir, "webapp");
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      assertEquals(3, root.copyTo(webapp, CopyStrategy.SKIP_UNCHANGED, executor));
+      assertEquals(0, root.copyTo(webapp, CopyStrategy.SKIP_UNCHANGED, executor));
+      assertEquals(0, root.copyTo(webapp, CopyStrategy.SKIP_IDENTICAL, executor));
+
+      FileUtils.write(jquery.getLocalFile(), "/* jquery 1.8.3, patched */");
+      assertEquals(1, root.copyTo(webapp, CopyStrategy.SKIP_UNCHANGED, executor));
+      assertEquals("/* jquery 1.8.3, patched */",
+          FileUtils.readFileToString(new File(webapp, "jquery-1.8.3.js")));
+    } finally {
+      executor.shutdown();
+    }
+
+    File linked = new File(dir, "linked");
+    assertEquals(3, root.copyTo(linked, CopyStrategy.LINK, null));
+    assertEquals(0, root.copyTo(linked, CopyStrategy.LINK, null));
+    assertTrue(Files.isSameFile(jquery.getLocalFile().toPath(),
+        new File(linked, "jquery-1.8.3.js").toPath()));
+  }
+
+  @Test
+  public void bundle() throws IOException {
+    File dir = new File("target/bundle");
+    FileUtils.deleteDirectory(dir);
+    Module root = module(dir, "app", "1.0.0");
+    Module backbone = module(dir, "backbone", "0.9.9");
+    Module underscore = module(dir, "underscore", "1.4.3");
+    FileUtils.write(underscore.getLocalFile(), "/* underscore */\nvar _;\n");
+    backbone.add(underscore);
+    root.add(backbone);
+    root.add(module(dir, "underscore", "1.4.2"));
+
+    File bundle = new File(dir, "app.js");
+    File sourceMap = new File(dir, "app.js.map");
+    assertEquals(Arrays.asList(underscore, backbone, root), root.bundleTo(bundle, sourceMap));
+    assertEquals("/* underscore */\nvar _;\n/* backbone 0.9.9 */\n/* app 1.0.0 */\n"
+        + "//# sourceMappingURL=app.js.map\n", FileUtils.readFileToString(bundle));
+
+    JsonNode map = new ObjectMapper().readTree(sourceMap);
+    JsonNode sections = map.get("sections");
+    assertEquals(3, sections.size());
+    assertEquals(2, sections.get(1).get("offset").get("line").asInt());
+    assertEquals("backbone-0.9.9.js", sections.get(1).get("map").get("sources").get(0).asText());
+    assertEquals("AAAA;AACA", sections.get(0).get("map").get("mappings").asText());
+  }
+
+  @Test
+  public void bundlePackageJson() throws IOException {
+    File dir = new File("target/bundle-package-json");
+    FileUtils.deleteDirectory(dir);
+    File home = new File(dir, "app");
+    FileUtils.write(new File(home, "package.json"), "{\"name\": \"app\"}");
+    // like Arbor.resolve(File)
+    Module root = new Module(new ModuleId("app", "1.0.0"), home, "package.json");
+    Module backbone = module(dir, "backbone", "0.9.9");
+    root.add(backbone);
+
+    File bundle = new File(dir, "app.js");
+    assertEquals(Arrays.asList(backbone), root.bundleTo(bundle));
+    assertEquals("/* backbone 0.9.9 */\n", FileUtils.readFileToString(bundle));
+  }
+
+  private static Module module(final File dir, final String name, final String revision)
+      throws IOException {
+    File home = new File(dir, name + "/" + revision);
+    FileUtils.write(new File(home, name + ".js"), "/* " + name + " " + revision + " */");
+    return new Module(new ModuleId(name, revision), home, name + ".js");
+  }
+}
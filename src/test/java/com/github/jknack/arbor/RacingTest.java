@@ -0,0 +1,143 @@
+package com.github.jknack.arbor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RacingTest {
+
+  static class SlowResolver extends AbstractResolver<String> {
+
+    final String name;
+
+    final long latency;
+
+    final boolean found;
+
+    AtomicInteger lookups = new AtomicInteger();
+
+    CountDownLatch started = new CountDownLatch(1);
+
+    CountDownLatch cancelled = new CountDownLatch(1);
+
+    // optional, don't answer before it's counted down
+    CountDownLatch after;
+
+    SlowResolver(final String name, final long latency, final boolean found) {
+      this.name = name;
+      this.latency = latency;
+      this.found = found;
+      ResolverRegistry.register(this);
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    protected ResolvedRevision<String> doResolve(final ModuleId moduleId) throws IOException {
+      lookups.incrementAndGet();
+      started.countDown();
+      try {
+        if (after != null) {
+          after.await(5, TimeUnit.SECONDS);
+        }
+        Thread.sleep(latency);
+      } catch (InterruptedException ex) {
+        cancelled.countDown();
+        throw new InterruptedIOException(name + " was cancelled");
+      }
+      if (!found) {
+        throw new UnresolvedDependencyException(moduleId);
+      }
+      return new ResolvedRevision<String>(name, moduleId);
+    }
+
+    @Override
+    protected Module download(final DependencyContext context, final String descriptor,
+        final ModuleId moduleId) throws IOException {
+      File home = context.moduleHome(moduleId);
+      String main = moduleId.getName() + ".js";
+      FileUtils.write(new File(home, main), "/* " + name + " */");
+      return new Module(moduleId, home, main);
+    }
+  }
+
+  private ExecutorService executor;
+
+  private File packageJson;
+
+  private Arbor arbor;
+
+  @Before
+  public void setUp() throws IOException {
+    File baseDir = new File("target/racing/modules");
+    File project = new File("target/racing/project");
+    FileUtils.deleteDirectory(baseDir.getParentFile());
+    project.mkdirs();
+    packageJson = new File(project, "package.json");
+    FileUtils.write(packageJson, "{\"name\": \"demo\", \"version\": \"0.0.0\", "
+        + "\"dependencies\": {\"jquery\": \"1.8.3\"}}");
+    executor = Executors.newCachedThreadPool();
+    arbor = new Arbor(baseDir);
+    arbor.setExecutor(executor);
+    arbor.setRacing(true);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void highestPriorityWins() throws IOException {
+    SlowResolver slow = new SlowResolver("race-slow", 300, true);
+    SlowResolver fast = new SlowResolver("race-fast", 0, true);
+    arbor.setResolvers(slow.getName(), fast.getName());
+    slow.after = fast.started;
+
+    ResolutionPlan plan = arbor.plan(packageJson);
+    assertEquals("race-slow", plan.getDownloads().get(0).getResolver());
+    assertEquals(1, slow.lookups.get());
+    assertEquals(1, fast.lookups.get());
+  }
+
+  @Test
+  public void failureFallsThrough() throws IOException {
+    SlowResolver failing = new SlowResolver("race-failing", 100, false);
+    SlowResolver found = new SlowResolver("race-found", 0, true);
+    arbor.setResolvers(failing.getName(), found.getName());
+
+    ResolutionPlan plan = arbor.plan(packageJson);
+    assertEquals("race-found", plan.getDownloads().get(0).getResolver());
+  }
+
+  @Test
+  public void losersAreCancelled() throws Exception {
+    SlowResolver winner = new SlowResolver("race-winner", 0, true);
+    SlowResolver loser = new SlowResolver("race-loser", 10000, true);
+    arbor.setResolvers(winner.getName(), loser.getName());
+    // make sure the loser is running when the winner answers
+    winner.after = loser.started;
+
+    long start = System.currentTimeMillis();
+    ResolutionPlan plan = arbor.plan(packageJson);
+    assertEquals("race-winner", plan.getDownloads().get(0).getResolver());
+    assertTrue(loser.cancelled.await(5, TimeUnit.SECONDS));
+    assertTrue(System.currentTimeMillis() - start < 10000);
+  }
+}
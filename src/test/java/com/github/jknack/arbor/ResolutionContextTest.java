@@ -0,0 +1,134 @@
+package com.github.jknack.arbor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResolutionContextTest {
+
+  static File baseDir = new File("target/resolution-context");
+
+  ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  ResolutionContext context;
+
+  @Before
+  public void setup() throws IOException {
+    context = new ResolutionContext(baseDir, ModuleIndex.open(baseDir),
+        new ConcurrentHashMap<ModuleId, Module>(), executor);
+  }
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void singleFlight() throws Exception {
+    final ModuleId moduleId = new ModuleId("jquery", "1.8.3");
+    final Module module = new Module(moduleId, baseDir, "jquery.js");
+    final AtomicInteger calls = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final Callable<Module> resolution = new Callable<Module>() {
+      @Override
+      public Module call() throws Exception {
+        calls.incrementAndGet();
+        started.countDown();
+        release.await(5, TimeUnit.SECONDS);
+        return module;
+      }
+    };
+    Future<Module> first = executor.submit(new Callable<Module>() {
+      @Override
+      public Module call() throws Exception {
+        return context.resolve(moduleId, resolution);
+      }
+    });
+    started.await(5, TimeUnit.SECONDS);
+    final AtomicReference<Thread> waiting = new AtomicReference<Thread>();
+    Future<Module> second = executor.submit(new Callable<Module>() {
+      @Override
+      public Module call() throws Exception {
+        waiting.set(Thread.currentThread());
+        return context.resolve(moduleId, resolution);
+      }
+    });
+    // wait until the second call joins the in-flight resolution
+    while (waiting.get() == null || waiting.get().getState() != Thread.State.WAITING) {
+      Thread.sleep(10);
+    }
+    release.countDown();
+    assertSame(module, first.get());
+    assertSame(module, second.get());
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void invokeAllKeepsOrder() throws IOException {
+    List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+    for (int i = 0; i < 10; i++) {
+      final int value = i;
+      tasks.add(new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          // nested tasks must not starve the pool
+          return context.invokeAll(Arrays.<Callable<Integer>> asList(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+              return value;
+            }
+          }, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+              return value;
+            }
+          })).get(0);
+        }
+      });
+    }
+    assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), context.invokeAll(tasks));
+  }
+
+  @Test
+  public void invokeAllFailure() {
+    List<Callable<String>> tasks = new ArrayList<Callable<String>>();
+    tasks.add(new Callable<String>() {
+      @Override
+      public String call() throws Exception {
+        throw new UnresolvedDependencyException("missing@1.0");
+      }
+    });
+    tasks.add(new Callable<String>() {
+      @Override
+      public String call() {
+        return "ok";
+      }
+    });
+    try {
+      context.invokeAll(tasks);
+      fail();
+    } catch (IOException ex) {
+      assertEquals("missing@1.0", ex.getMessage());
+    }
+  }
+}
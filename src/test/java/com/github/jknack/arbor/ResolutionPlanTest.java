@@ -0,0 +1,258 @@
+package com.github.jknack.arbor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ResolutionPlanTest {
+
+  /**
+   * backbone depends on underscore, which is downloaded once {@link #release} is counted down.
+   */
+  static class EdgeResolver extends AbstractResolver<String> {
+
+    // underscore depends on backbone too
+    boolean cycle;
+
+    CountDownLatch downloaded = new CountDownLatch(1);
+
+    CountDownLatch release = new CountDownLatch(1);
+
+    @Override
+    public String getName() {
+      return "edge";
+    }
+
+    @Override
+    protected ResolvedRevision<String> doResolve(final ModuleId moduleId) throws IOException {
+      return new ResolvedRevision<String>("edge://" + moduleId.getName(), moduleId);
+    }
+
+    @Override
+    protected List<ModuleId> dependencies(final String descriptor, final ModuleId moduleId) {
+      if (moduleId.getName().equals("backbone")) {
+        return Collections.singletonList(new ModuleId("underscore", "1.4.3"));
+      }
+      if (cycle) {
+        return Collections.singletonList(new ModuleId("backbone", "0.9.9"));
+      }
+      return Collections.emptyList();
+    }
+
+    @Override
+    protected Module download(final DependencyContext context, final String descriptor,
+        final ModuleId moduleId) throws IOException {
+      if (moduleId.getName().equals("underscore")) {
+        downloaded.countDown();
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+          throw new IOException(ex);
+        }
+      }
+      File home = context.moduleHome(moduleId);
+      String main = moduleId.getName() + ".js";
+      FileUtils.write(new File(home, main), "/* " + moduleId + " */");
+      return new Module(moduleId, home, main);
+    }
+  }
+
+  @BeforeClass
+  public static void register() {
+    ResolverRegistry.register(LockFileTest.resolver);
+  }
+
+  @Test
+  public void dryRun() throws IOException {
+    File baseDir = new File("target/resolution-plan/modules");
+    File project = new File("target/resolution-plan/project");
+    FileUtils.deleteDirectory(baseDir.getParentFile());
+    project.mkdirs();
+    File packageJson = new File(project, "package.json");
+    FileUtils.write(packageJson, "{\"name\": \"demo\", \"version\": \"0.0.0\", "
+        + "\"dependencies\": {\"jquery\": \"~1.8.3\", \"underscore\": \"1.4.3\"}}");
+
+    Arbor arbor = new Arbor(baseDir);
+    arbor.setResolvers("fake");
+    ResolutionPlan plan = arbor.plan(packageJson);
+    assertEquals(Arrays.asList(new ModuleId("jquery", "1.8.3"), new ModuleId("underscore",
+        "1.4.3")), plan.getRoots());
+    assertEquals(2, plan.getDownloads().size());
+    assertEquals("fake", plan.getDownloads().get(0).getResolver());
+    assertFalse(new File(baseDir, "jquery").exists());
+
+    arbor.resolve(packageJson);
+    assertTrue(new File(baseDir, "jquery/1.8.3/jquery.js").exists());
+
+    plan = arbor.plan(packageJson);
+    assertEquals(0, plan.getDownloads().size());
+    assertTrue(plan.getSteps().get(0).isInstalled());
+  }
+
+  @Test
+  public void sharedBaseDir() throws Exception {
+    File baseDir = new File("target/resolution-plan-shared/modules");
+    File project = new File("target/resolution-plan-shared/project");
+    FileUtils.deleteDirectory(baseDir.getParentFile());
+    project.mkdirs();
+    final File packageJson = new File(project, "package.json");
+    FileUtils.write(packageJson, "{\"name\": \"demo\", \"version\": \"0.0.0\", "
+        + "\"dependencies\": {\"jquery\": \"1.8.2\", \"underscore\": \"1.4.2\"}}");
+    LockFileTest.resolver.downloads.set(0);
+
+    // two builds in the same JVM: they share the index and the thread side of the module locks
+    List<Callable<Module>> builds = new ArrayList<Callable<Module>>();
+    for (int i = 0; i < 2; i++) {
+      final Arbor arbor = new Arbor(baseDir);
+      arbor.setResolvers("fake");
+      builds.add(new Callable<Module>() {
+        @Override
+        public Module call() throws IOException {
+          return arbor.resolve(packageJson);
+        }
+      });
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      for (Future<Module> build : executor.invokeAll(builds)) {
+        assertEquals(2, build.get().dependencies().size());
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(2, LockFileTest.resolver.downloads.get());
+    assertEquals(Arrays.asList("1.8.2"), Arrays.asList(new File(baseDir, "jquery").list()));
+    // nobody holds a module lock, and they are all gone
+    assertEquals(0, ModuleLock.inUse());
+  }
+
+  @Test
+  public void planSavesModulesWithDependencies() throws Exception {
+    final File baseDir = new File("target/resolution-plan-edge/modules");
+    File project = new File("target/resolution-plan-edge/project");
+    FileUtils.deleteDirectory(baseDir.getParentFile());
+    project.mkdirs();
+    final File packageJson = new File(project, "package.json");
+    FileUtils.write(packageJson, "{\"name\": \"demo\", \"version\": \"0.0.0\", "
+        + "\"dependencies\": {\"backbone\": \"0.9.9\"}}");
+    EdgeResolver resolver = new EdgeResolver();
+    ResolverRegistry.register(resolver);
+    final Arbor arbor = new Arbor(baseDir);
+    arbor.setResolvers("edge");
+
+    assertSavedWithDependencies(baseDir, resolver, new Callable<Module>() {
+      @Override
+      public Module call() throws IOException {
+        return arbor.resolve(packageJson);
+      }
+    });
+  }
+
+  @Test
+  public void resolverSavesModulesWithDependencies() throws Exception {
+    File baseDir = new File("target/resolution-plan-resolver");
+    FileUtils.deleteDirectory(baseDir);
+    baseDir.mkdirs();
+    final EdgeResolver resolver = new EdgeResolver();
+    final DependencyContext context = new ResolutionContext(baseDir,
+        ModuleIndex.open(baseDir), new ConcurrentHashMap<ModuleId, Module>(), null);
+
+    assertSavedWithDependencies(baseDir, resolver, new Callable<Module>() {
+      @Override
+      public Module call() throws IOException {
+        return resolver.resolve(context, new ModuleId("backbone", "0.9.9"));
+      }
+    });
+  }
+
+  /**
+   * Install backbone and check that the index of another process doesn't see it before
+   * underscore is in place.
+   */
+  private static void assertSavedWithDependencies(final File baseDir,
+      final EdgeResolver resolver, final Callable<Module> install) throws Exception {
+    ModuleId backbone = new ModuleId("backbone", "0.9.9");
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Module> build = executor.submit(install);
+      assertTrue(resolver.downloaded.await(5, TimeUnit.SECONDS));
+      // backbone is in place, but not saved yet
+      ModuleIndex index = new ModuleIndex(baseDir.getCanonicalFile());
+      assertNull(index.load(backbone));
+      resolver.release.countDown();
+      build.get();
+
+      Module module = index.load(backbone);
+      assertNotNull(module);
+      assertEquals(Arrays.asList(new ModuleId("underscore", "1.4.3")), module.getRequires());
+      assertEquals("underscore.js", module.dependencies().get(0).getMain());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(timeout = 5000)
+  public void dependencyCycle() throws IOException {
+    File baseDir = new File("target/resolution-plan-cycle");
+    FileUtils.deleteDirectory(baseDir);
+    baseDir.mkdirs();
+    EdgeResolver resolver = new EdgeResolver();
+    resolver.cycle = true;
+    resolver.release.countDown();
+    DependencyContext context = new ResolutionContext(baseDir, ModuleIndex.open(baseDir),
+        new ConcurrentHashMap<ModuleId, Module>(), null);
+
+    Module backbone = resolver.resolve(context, new ModuleId("backbone", "0.9.9"));
+    Module underscore = backbone.dependencies().get(0);
+    assertEquals(Arrays.asList(backbone.getId()), underscore.getRequires());
+    assertEquals(0, ModuleLock.inUse());
+  }
+
+  @Test(expected = IOException.class)
+  public void lockTimeout() throws Exception {
+    File baseDir = new File("target/resolution-plan-lock");
+    FileUtils.deleteDirectory(baseDir);
+    final DependencyContext context = new ResolutionContext(baseDir,
+        ModuleIndex.open(baseDir), new ConcurrentHashMap<ModuleId, Module>(), null);
+    final ModuleId jquery = new ModuleId("jquery", "1.8.3");
+    ModuleLock lock = ModuleLock.acquire(context, jquery);
+    long timeout = ModuleLock.timeout;
+    ModuleLock.timeout = 200;
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      executor.submit(new Callable<ModuleLock>() {
+        @Override
+        public ModuleLock call() throws IOException {
+          return ModuleLock.acquire(context, jquery);
+        }
+      }).get();
+    } catch (ExecutionException ex) {
+      throw (Exception) ex.getCause();
+    } finally {
+      ModuleLock.timeout = timeout;
+      lock.release();
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package com.github.jknack.arbor.bower;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class BowerRegistryTest {
+
+  static final String PACKAGES = "["
+      + "{\"name\": \"jquery\", \"url\": \"git://github.com/components/jquery.git\"},"
+      + "{\"name\": \"backbone\", \"url\": \"git://github.com/old/backbone.git\","
+      + " \"endpoint\": {\"hits\": [1, 2]}},"
+      + "{\"name\": \"underscore\"},"
+      + "{\"name\": \"backbone\", \"url\": \"git://github.com/documentcloud/backbone.git\"}"
+      + "]";
+
+  @Test
+  public void parse() throws IOException {
+    assertRegistry(BowerRegistry.parse(PACKAGES));
+  }
+
+  @Test
+  public void parseStream() throws IOException {
+    assertRegistry(BowerRegistry.parse(new ByteArrayInputStream(PACKAGES.getBytes("UTF-8"))));
+  }
+
+  private static void assertRegistry(final BowerRegistry registry) {
+    assertEquals(2, registry.size());
+    assertEquals("git://github.com/components/jquery.git", registry.find("jquery"));
+    assertEquals("git://github.com/documentcloud/backbone.git", registry.find("backbone"));
+    assertNull(registry.find("underscore"));
+    assertNull(registry.find("zepto"));
+  }
+}
@@ -0,0 +1,63 @@
+package com.github.jknack.arbor.github;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ExpiringCacheTest {
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private final Callable<String> loader = new Callable<String>() {
+    @Override
+    public String call() {
+      return "v" + loads.incrementAndGet();
+    }
+  };
+
+  @Test
+  public void hit() throws IOException {
+    ExpiringCache<String> cache = new ExpiringCache<String>(10, 60000);
+    assertEquals("v1", cache.get("jquery", loader));
+    assertEquals("v1", cache.get("jquery", loader));
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void expired() throws IOException {
+    ExpiringCache<String> cache = new ExpiringCache<String>(10, 0);
+    assertEquals("v1", cache.get("jquery", loader));
+    assertEquals("v2", cache.get("jquery", loader));
+  }
+
+  @Test
+  public void evictLeastRecentlyUsed() throws IOException {
+    ExpiringCache<String> cache = new ExpiringCache<String>(2, 60000);
+    cache.get("jquery", loader);
+    cache.get("backbone", loader);
+    cache.get("jquery", loader);
+    cache.get("underscore", loader);
+    assertEquals(2, cache.size());
+    assertEquals("v1", cache.get("jquery", loader));
+    assertEquals("v4", cache.get("backbone", loader));
+  }
+
+  @Test(expected = IOException.class)
+  public void failuresAreNotCached() throws IOException {
+    ExpiringCache<String> cache = new ExpiringCache<String>(10, 60000);
+    try {
+      cache.get("jquery", new Callable<String>() {
+        @Override
+        public String call() throws IOException {
+          throw new IOException("404");
+        }
+      });
+    } finally {
+      assertEquals(0, cache.size());
+    }
+  }
+}
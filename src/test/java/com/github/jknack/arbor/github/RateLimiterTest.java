@@ -0,0 +1,92 @@
+package com.github.jknack.arbor.github;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.jknack.arbor.io.HttpContent;
+import com.github.jknack.arbor.io.HttpTransport;
+import com.github.jknack.arbor.io.TestServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+public class RateLimiterTest {
+
+  /**
+   * Moves forward when asked to wait, instead of waiting.
+   */
+  static class FakeClock extends RateLimiter.Clock {
+    long now = 1356998400000L;
+
+    @Override
+    long millis() {
+      return now;
+    }
+
+    @Override
+    void sleep(final long millis) {
+      now += millis;
+    }
+
+    @Override
+    void await(final Object monitor, final long millis) {
+      now += millis;
+    }
+  }
+
+  private FakeClock clock = new FakeClock();
+
+  private AtomicInteger hits = new AtomicInteger();
+
+  private volatile long reset;
+
+  @Rule
+  public TestServer server = new TestServer(new HttpHandler() {
+    @Override
+    public void handle(final HttpExchange exchange) throws IOException {
+      boolean limited = hits.incrementAndGet() == 1;
+      exchange.getResponseHeaders().add("X-RateLimit-Remaining", limited ? "0" : "59");
+      exchange.getResponseHeaders().add("X-RateLimit-Reset", Long.toString(reset));
+      byte[] body = (limited ? "{\"message\": \"API rate limit exceeded\"}" : "[]")
+          .getBytes("UTF-8");
+      TestServer.send(exchange, limited ? 403 : 200, body);
+    }
+  });
+
+  @Before
+  public void start() {
+    reset = clock.now / 1000 + 60;
+  }
+
+  @Test
+  public void waitForReset() throws IOException {
+    HttpTransport transport = new HttpTransport();
+    RateLimiter rateLimiter = new RateLimiter(clock);
+    HttpContent content = rateLimiter.get(transport,
+        server.uri("/repos/jquery/jquery/tags"));
+    assertEquals(200, content.getStatusCode());
+    assertEquals(2, hits.get());
+    assertTrue(clock.now >= reset * 1000);
+    transport.shutdown();
+  }
+
+  @Test(expected = IOException.class)
+  public void resetTooFarAway() throws IOException {
+    reset = clock.now / 1000 + 3600;
+    HttpTransport transport = new HttpTransport();
+    RateLimiter rateLimiter = new RateLimiter(clock);
+    rateLimiter.setMaxWait(1000);
+    String uri = server.uri("/repos/jquery/jquery/tags");
+    try {
+      rateLimiter.get(transport, uri);
+    } finally {
+      transport.shutdown();
+    }
+  }
+}
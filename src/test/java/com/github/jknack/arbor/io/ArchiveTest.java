@@ -0,0 +1,55 @@
+package com.github.jknack.arbor.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.codehaus.plexus.archiver.tar.TarEntry;
+import org.codehaus.plexus.archiver.tar.TarOutputStream;
+import org.junit.Test;
+
+public class ArchiveTest {
+
+  @Test
+  public void readAndExtract() throws IOException {
+    Archive archive = Archive.read(new ByteArrayInputStream(tarball(
+        "pax_global_header", "52 comment=0123456789\n",
+        "backbone-0.9.9/component.json", "{\"name\": \"backbone\"}",
+        "backbone-0.9.9/backbone.js", "/* backbone */",
+        "backbone-0.9.9/test/index.html", "<html></html>")));
+
+    assertEquals(3, archive.paths().size());
+    assertEquals("{\"name\": \"backbone\"}", archive.getString("component.json"));
+    assertEquals("/* backbone */", archive.getString("./backbone.js"));
+    assertNull(archive.getString("package.json"));
+    assertNull(archive.getString("../backbone-0.9.8/backbone.js"));
+
+    File dir = new File("target/archive");
+    FileUtils.deleteDirectory(dir);
+    archive.extract(dir);
+    assertTrue(new File(dir, "backbone.js").exists());
+    assertEquals("<html></html>", FileUtils.readFileToString(new File(dir, "test/index.html")));
+  }
+
+  static byte[] tarball(final String... files) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    TarOutputStream tar = new TarOutputStream(new GZIPOutputStream(buffer));
+    for (int i = 0; i < files.length; i += 2) {
+      byte[] content = files[i + 1].getBytes("UTF-8");
+      TarEntry entry = new TarEntry(files[i]);
+      entry.setSize(content.length);
+      tar.putNextEntry(entry);
+      tar.write(content);
+      tar.closeEntry();
+    }
+    tar.close();
+    return buffer.toByteArray();
+  }
+}
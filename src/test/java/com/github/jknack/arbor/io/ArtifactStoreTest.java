@@ -0,0 +1,63 @@
+package com.github.jknack.arbor.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+public class ArtifactStoreTest {
+
+  private byte[] tarball;
+
+  @Rule
+  public TestServer server = new TestServer(new HttpHandler() {
+    @Override
+    public void handle(final HttpExchange exchange) throws IOException {
+      TestServer.send(exchange, 200, tarball);
+    }
+  });
+
+  @Before
+  public void start() throws IOException {
+    tarball = ArchiveTest.tarball(
+        "package/package.json", "{\"name\": \"jquery\"}",
+        "package/jquery.js", "/* jquery */",
+        "package/test/index.html", "<html></html>");
+  }
+
+  @Test
+  public void downloadOnceAndLink() throws IOException {
+    File dir = new File("target/store");
+    FileUtils.deleteDirectory(dir);
+    ArtifactStore store = new ArtifactStore(new File(dir, "store"));
+    HttpTransport transport = new HttpTransport();
+    String uri = server.uri("/jquery-1.8.3.tar.gz");
+
+    File project1 = new File(dir, "project1");
+    File project2 = new File(dir, "project2");
+    String digest = store.extract(transport, uri, project1);
+    assertEquals(Digests.hex(Digests.sha256().digest(tarball)), digest);
+    assertEquals(digest, store.extract(transport, uri, project2, "jquery.js"));
+    assertEquals(1, transport.getRequests());
+
+    assertEquals("<html></html>",
+        FileUtils.readFileToString(new File(project1, "test/index.html")));
+    File jquery = new File(project2, "jquery.js");
+    assertEquals("/* jquery */", FileUtils.readFileToString(jquery));
+    assertFalse(new File(project2, "package.json").exists());
+    assertTrue(Files.isSameFile(jquery.toPath(), new File(store.object(digest), "jquery.js")
+        .toPath()));
+    transport.shutdown();
+  }
+}
@@ -0,0 +1,69 @@
+package com.github.jknack.arbor.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.codehaus.plexus.components.io.fileselectors.FileInfo;
+import org.codehaus.plexus.components.io.fileselectors.FileSelector;
+import org.junit.Test;
+
+public class FileExtractorTest {
+
+  @Test
+  public void extractStream() throws IOException {
+    byte[] tarball = ArchiveTest.tarball(
+        "package/package.json", "{\"name\": \"jquery\"}",
+        "package/jquery.js", "/* jquery */",
+        "package/test/index.html", "<html></html>",
+        "package/../../evil.js", "/* evil */");
+
+    File dir = new File("target/extractor/jquery");
+    FileUtils.deleteDirectory(dir.getParentFile());
+    FileExtractor.extract(new ByteArrayInputStream(tarball), "jquery-1.8.3.tar.gz", dir,
+        new FileSelector() {
+          @Override
+          public boolean isSelected(final FileInfo fileInfo) throws IOException {
+            return !fileInfo.getName().startsWith("test/");
+          }
+        });
+
+    assertEquals("{\"name\": \"jquery\"}",
+        FileUtils.readFileToString(new File(dir, "package.json")));
+    assertEquals("/* jquery */", FileUtils.readFileToString(new File(dir, "jquery.js")));
+    assertFalse(new File(dir, "test").exists());
+    assertFalse(new File("target/evil.js").exists());
+    assertTrue(dir.list().length == 2);
+  }
+
+  @Test
+  public void extractOnly() throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    ZipOutputStream zip = new ZipOutputStream(buffer);
+    String[] files = {"package/package.json", "{\"main\": \"backbone\"}",
+        "package/backbone.js", "/* backbone */", "package/test/index.html", "<html></html>" };
+    for (int i = 0; i < files.length; i += 2) {
+      zip.putNextEntry(new ZipEntry(files[i]));
+      zip.write(files[i + 1].getBytes("UTF-8"));
+      zip.closeEntry();
+    }
+    zip.close();
+
+    File dir = new File("target/extractor/backbone");
+    FileUtils.deleteDirectory(dir);
+    FileExtractor.extract(new ByteArrayInputStream(buffer.toByteArray()), "backbone.zip", dir,
+        FileExtractor.only("package.json", "./backbone.js"));
+
+    assertEquals("/* backbone */", FileUtils.readFileToString(new File(dir, "backbone.js")));
+    assertTrue(new File(dir, "package.json").exists());
+    assertFalse(new File(dir, "test").exists());
+  }
+}
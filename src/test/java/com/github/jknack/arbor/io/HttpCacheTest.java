@@ -0,0 +1,101 @@
+package com.github.jknack.arbor.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+public class HttpCacheTest {
+
+  private AtomicInteger hits = new AtomicInteger();
+
+  private AtomicInteger notModified = new AtomicInteger();
+
+  private volatile String cacheControl;
+
+  private HttpTransport transport;
+
+  private HttpCache cache;
+
+  @Rule
+  public TestServer server = new TestServer(new HttpHandler() {
+    @Override
+    public void handle(final HttpExchange exchange) throws IOException {
+      hits.incrementAndGet();
+      exchange.getResponseHeaders().add("ETag", "\"v1\"");
+      exchange.getResponseHeaders().add("Cache-Control", cacheControl);
+      if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+        notModified.incrementAndGet();
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return;
+      }
+      TestServer.send(exchange, 200, "{\"name\": \"jquery\"}".getBytes("UTF-8"));
+    }
+  });
+
+  @Before
+  public void start() throws IOException {
+    File dir = new File("target/http-cache");
+    FileUtils.deleteDirectory(dir);
+    cache = new HttpCache(dir);
+    transport = new HttpTransport();
+    transport.setCache(cache);
+  }
+
+  @After
+  public void stop() {
+    transport.shutdown();
+  }
+
+  @Test
+  public void fresh() throws IOException {
+    cacheControl = "max-age=60";
+    assertFalse(transport.get(uri()).isCached());
+    HttpContent content = transport.get(uri());
+    assertTrue(content.isCached());
+    assertEquals("{\"name\": \"jquery\"}", content.getBody());
+    assertEquals(1, hits.get());
+  }
+
+  @Test
+  public void revalidate() throws IOException {
+    cacheControl = "no-cache";
+    transport.get(uri());
+    HttpContent content = transport.get(uri());
+    assertTrue(content.isCached());
+    assertEquals("{\"name\": \"jquery\"}", content.getBody());
+    assertEquals(2, hits.get());
+    assertEquals(1, notModified.get());
+  }
+
+  @Test
+  public void staleWhileRevalidate() throws Exception {
+    cacheControl = "max-age=0";
+    cache.setStaleWhileRevalidate(60);
+    transport.get(uri());
+    HttpContent content = transport.get(uri());
+    assertTrue(content.isCached());
+    // revalidated in background
+    for (int i = 0; i < 100 && notModified.get() == 0; i++) {
+      Thread.sleep(20);
+    }
+    assertEquals(1, notModified.get());
+  }
+
+  private String uri() {
+    return server.uri("/jquery");
+  }
+}
@@ -0,0 +1,47 @@
+package com.github.jknack.arbor.io;
+
+import static org.apache.http.client.fluent.Request.Get;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+public class HttpTransportTest {
+
+  private static final String CONTENT = StringUtils.repeat("define('x', {});\n", 1000);
+
+  @Rule
+  public TestServer server = new TestServer(new HttpHandler() {
+    @Override
+    public void handle(final HttpExchange exchange) throws IOException {
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      GZIPOutputStream gzip = new GZIPOutputStream(buffer);
+      gzip.write(CONTENT.getBytes("UTF-8"));
+      gzip.close();
+      exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+      TestServer.send(exchange, 200, buffer.toByteArray());
+    }
+  });
+
+  @Test
+  public void compressedAndCounted() throws IOException {
+    HttpTransport transport = new HttpTransport();
+    String uri = server.uri("/x.js");
+    assertEquals(CONTENT, transport.execute(Get(uri)).returnContent().asString());
+    assertEquals(CONTENT, transport.execute(Get(uri)).returnContent().asString());
+    assertEquals(2, transport.getRequests());
+    // wire bytes, before decompression
+    assertTrue(transport.getBytes() > 0);
+    assertTrue(transport.getBytes() < CONTENT.length());
+    transport.shutdown();
+  }
+}
@@ -0,0 +1,53 @@
+package com.github.jknack.arbor.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+import org.junit.rules.ExternalResource;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP server for tests: started before and stopped after each test.
+ * <pre>
+ *   &#64;Rule
+ *   public TestServer server = new TestServer(handler);
+ * </pre>
+ */
+public class TestServer extends ExternalResource {
+
+  private final HttpHandler handler;
+
+  private HttpServer server;
+
+  public TestServer(final HttpHandler handler) {
+    this.handler = handler;
+  }
+
+  @Override
+  protected void before() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", handler);
+    server.start();
+  }
+
+  @Override
+  protected void after() {
+    server.stop(0);
+  }
+
+  public String uri(final String path) {
+    return "http://localhost:" + server.getAddress().getPort() + path;
+  }
+
+  public static void send(final HttpExchange exchange, final int status, final byte[] body)
+      throws IOException {
+    exchange.sendResponseHeaders(status, body.length);
+    OutputStream out = exchange.getResponseBody();
+    out.write(body);
+    out.close();
+  }
+}
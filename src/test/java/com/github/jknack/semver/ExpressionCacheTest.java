@@ -0,0 +1,52 @@
+package com.github.jknack.semver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class ExpressionCacheTest {
+
+  @Test
+  public void hitAndMiss() {
+    ExpressionCache cache = new ExpressionCache(10);
+    Semver expr = cache.get("~1.2.3");
+    assertEquals(0, cache.hits());
+    assertEquals(1, cache.misses());
+
+    assertSame(expr, cache.get("~1.2.3"));
+    assertEquals(1, cache.hits());
+    assertEquals(1, cache.misses());
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void eviction() {
+    ExpressionCache cache = new ExpressionCache(2);
+    Semver v1 = cache.get("1.0.0");
+    cache.get("1.0.1");
+    cache.get("1.0.2");
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.evictions());
+
+    // 1.0.0 was evicted
+    assertNotSame(v1, cache.get("1.0.0"));
+    assertEquals(4, cache.misses());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void errorsArentCached() {
+    ExpressionCache cache = new ExpressionCache(2);
+    try {
+      cache.get("x.1");
+    } finally {
+      assertEquals(0, cache.size());
+    }
+  }
+
+  @Test
+  public void create() {
+    assertSame(Semver.create(">=1.0.2 <2.1.2"), Semver.create(">=1.0.2 <2.1.2"));
+  }
+}
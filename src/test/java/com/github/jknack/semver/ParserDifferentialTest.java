@@ -0,0 +1,156 @@
+package com.github.jknack.semver;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+/**
+ * Make sure {@link ExpressionParser} and {@link RecursiveDescentParser} agree on every input, and
+ * that compiled expressions agree with {@link Semver#matches(Semver)}.
+ */
+public class ParserDifferentialTest {
+
+  static final String[] OPERATORS = {"", "=", ">", ">=", "<", "<=", "~", "v", "~v", "> " };
+
+  static final String[] VERSIONS = {"0", "1", "1.2", "1.2.3", "1.2.3-4", "1.2.3-beta",
+      "1.2.3-4-beta", "1.2.3beta", "1.x", "1.2.x", "1.x.x", "1.X", "10.20.30", "0.0.0" };
+
+  static final String[] PROBES = {"0", "0.0.1", "0.1.2", "0.1.2-6", "0.1.2-7", "0.1.2-7-beta",
+      "0.1.2-beta", "0.1.3", "0.5", "1", "1.0", "1.0.0", "1.0.0-rc.1", "1.0.2", "1.0.5", "1.1",
+      "1.2", "1.2.0", "1.2.2", "1.2.3", "1.2.3-4", "1.2.3-beta", "1.2.4", "1.2.9", "1.3",
+      "1.3.4", "1.3.5", "1.9", "2", "2.0", "2.1.1", "2.1.2", "2.3.1", "2.4.4", "2.5.2",
+      "2.9999.9999", "3", "3.0.0", "10.20.30", "v1.2.3", "latest", "*",
+      "http://asdf.com/asdf.tar.gz" };
+
+  @Test
+  public void corpus() throws IOException {
+    for (String expression : corpusFile()) {
+      assertSame(expression);
+    }
+  }
+
+  @Test
+  public void generated() {
+    List<String> terms = new ArrayList<String>();
+    for (String operator : OPERATORS) {
+      for (String version : VERSIONS) {
+        terms.add(operator + version);
+      }
+    }
+    for (String term : terms) {
+      assertSame(term);
+    }
+    for (int i = 0; i < terms.size(); i += 3) {
+      String left = terms.get(i);
+      String right = terms.get(terms.size() - i - 1);
+      assertSame(left + " - " + right);
+      assertSame(left + " " + right);
+      assertSame(left + " || " + right);
+      assertSame(left + " " + right + " || " + right);
+    }
+  }
+
+  private void assertSame(final String expression) {
+    assertEquals(expression, describe(parboiled(expression)),
+        describe(handwritten(expression)));
+    assertCompiled(expression);
+  }
+
+  private void assertCompiled(final String expression) {
+    Object result = handwritten(expression);
+    if (result instanceof RuntimeException) {
+      return;
+    }
+    Semver expr = (Semver) result;
+    VersionIndex index = VersionIndex.of(PROBES);
+    VersionSet versions = expr.toVersionSet();
+    BitSet bits = null;
+    try {
+      bits = expr.evaluate(index);
+    } catch (RuntimeException ex) {
+      // evaluate falls back to matches, which doesn't support every probe
+    }
+    for (int i = 0; i < index.size(); i++) {
+      Version probe = index.version(i);
+      String message = expression + " vs " + probe;
+      boolean expected;
+      try {
+        expected = expr.matches(probe);
+      } catch (RuntimeException ex) {
+        continue;
+      }
+      if (bits != null) {
+        assertEquals(message, expected, bits.get(i));
+      }
+      if (versions != null) {
+        assertEquals(message, expected, versions.contains(probe));
+      }
+    }
+  }
+
+  private static Object parboiled(final String expression) {
+    try {
+      return ExpressionParser.parse(expression);
+    } catch (RuntimeException ex) {
+      return ex;
+    }
+  }
+
+  private static Object handwritten(final String expression) {
+    try {
+      return RecursiveDescentParser.parse(expression);
+    } catch (RuntimeException ex) {
+      return ex;
+    }
+  }
+
+  private static String describe(final Object result) {
+    if (result instanceof RuntimeException) {
+      // error messages aren't required to be the same
+      return "error";
+    }
+    Semver expr = (Semver) result;
+    StringBuilder buffer = new StringBuilder();
+    buffer.append(expr.text()).append(" ").append(expr.type()).append(" static: ")
+        .append(expr.isStatic());
+    if (expr instanceof Version) {
+      Version version = (Version) expr;
+      buffer.append(" [").append(version.getMajor()).append(", ").append(version.getMinor())
+          .append(", ").append(version.getIncremental()).append(", ").append(version.getBuild())
+          .append(", ").append(version.getTag()).append("]");
+    }
+    for (String probe : PROBES) {
+      buffer.append("\n  ").append(probe).append(": ");
+      try {
+        buffer.append(expr.matches(ExpressionParser.parse(probe)));
+      } catch (RuntimeException ex) {
+        buffer.append(ex.getClass().getSimpleName());
+      }
+    }
+    return buffer.toString();
+  }
+
+  private static List<String> corpusFile() throws IOException {
+    InputStream input = ParserDifferentialTest.class.getResourceAsStream(
+        "/semver/expressions.txt");
+    try {
+      List<String> expressions = new ArrayList<String>();
+      for (String line : IOUtils.readLines(input, "UTF-8")) {
+        if (line.startsWith("#") || line.trim().length() == 0) {
+          continue;
+        }
+        expressions.add(line.substring(1, line.length() - 1));
+      }
+      return expressions;
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+}
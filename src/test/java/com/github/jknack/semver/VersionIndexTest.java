@@ -0,0 +1,66 @@
+package com.github.jknack.semver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class VersionIndexTest {
+
+  static final VersionIndex INDEX = VersionIndex.of("1.4.4", "1.8.3", "1.7.2", "1.8.0",
+      "1.9.0-rc1", "2.0.0b2", "1.9.0", "1.6.4", "1.8.2", "1.7.1", "1.5", "2.0.0", "1.9.1",
+      "70000.1", "master", "1.0.0-rc.10.abcdef", "1.0.0-rc.10.abcdeg");
+
+  @Test
+  public void sorted() {
+    assertEquals("[1.0.0-rc.10.abcdef, 1.0.0-rc.10.abcdeg, 1.4.4, 1.5, 1.6.4, 1.7.1, 1.7.2, "
+        + "1.8.0, 1.8.2, 1.8.3, 1.9.0-rc1, 1.9.0, 1.9.1, 2.0.0b2, 2.0.0, 70000.1]",
+        INDEX.toString());
+  }
+
+  @Test
+  public void sameAsMatches() {
+    String[] expressions = {"*", "1.8.x", "1.x", "~1.8.0", "~1.8", "<1.9.0", ">1.9.0",
+        "<=1.8.2", ">=2.0.0b2", "1.5 - 1.8.0", "1.4.4 || 1.8.x", ">1.5 <1.8.3 || 2.0.0",
+        "1.9.0-rc1", "3.x", "<1.0", ">=70000", "1.0.0-rc.10.abcdeg", ">1.0.0-rc.10.abcdef <1.5",
+        "latest", "http://asdf.com/asdf.tar.gz", "1.8.x || http://asdf.com/asdf.tar.gz" };
+    for (String expression : expressions) {
+      Semver expr = Semver.create(expression);
+      List<String> expected = new ArrayList<String>();
+      for (int i = 0; i < INDEX.size(); i++) {
+        if (expr.matches(INDEX.get(i))) {
+          expected.add(INDEX.get(i));
+        }
+      }
+      assertEquals(expression, expected, INDEX.select(expr.evaluate(INDEX)));
+    }
+  }
+
+  @Test
+  public void evaluateAll() {
+    BitSet bits = INDEX.evaluateAll(Arrays.asList(Semver.create(">=1.5"), Semver.create("1.x"),
+        Semver.create("<1.8.3 || 2.0.0")));
+    assertEquals(Arrays.asList("1.5", "1.6.4", "1.7.1", "1.7.2", "1.8.0", "1.8.2"),
+        INDEX.select(bits));
+    assertEquals("1.8.2", INDEX.max(bits));
+
+    assertNull(INDEX.max(INDEX.evaluateAll(Arrays.asList(Semver.create("~1.4"),
+        Semver.create("~2.0")))));
+  }
+
+  @Test
+  public void maxOutOfRange() {
+    BitSet bits = new BitSet();
+    bits.set(INDEX.size());
+    bits.set(INDEX.size() + 10);
+    assertNull(INDEX.max(bits));
+
+    bits.set(2);
+    assertEquals("1.4.4", INDEX.max(bits));
+  }
+}
@@ -0,0 +1,78 @@
+package com.github.jknack.semver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class VersionListTest {
+
+  static final List<String> TAGS = Arrays.asList("1.4.4", "1.8.3", "1.7.2", "1.8.0",
+      "1.9.0-rc1", "2.0.0b2", "1.9.0", "1.6.4", "1.8.2", "1.7.1", "1.5", "2.0.0", "1.9.1");
+
+  @Test
+  public void sameOrderAsDesc() {
+    List<String> expected = new ArrayList<String>(TAGS);
+    Collections.sort(expected, Semver.DESC);
+    assertEquals(expected, Semver.sortDescending(TAGS));
+  }
+
+  @Test
+  public void invalidCandidatesGoLast() {
+    assertEquals("[1.2.0, 1.0.0, master, 1.x]",
+        VersionList.of("master", "1.0.0", "1.x", "1.2.0").toString());
+  }
+
+  @Test
+  public void maxSatisfying() {
+    VersionList versions = new VersionList(TAGS);
+    assertEquals("2.0.0", versions.first());
+    assertEquals("2.0.0", versions.maxSatisfying("latest"));
+    assertEquals("2.0.0", versions.maxSatisfying("*"));
+    assertEquals("1.7.2", versions.maxSatisfying("1.7.x"));
+    assertEquals("1.8.3", versions.maxSatisfying("1.8.1 - 1.8.9"));
+    assertEquals("1.7.2", versions.maxSatisfying("<1.8"));
+    assertEquals("1.7.2", versions.maxSatisfying("1.7.x || 1.6.x"));
+    assertEquals("1.8.0", versions.maxSatisfying("1.8.0"));
+    assertEquals("1.5", versions.maxSatisfying("1.5.0"));
+    assertEquals("1.9.0-rc1", versions.maxSatisfying(">=1.9.0-rc1 <1.9.0"));
+    assertEquals("1.6.4", versions.maxSatisfying("<1.0.0 || >=1.6 <1.7"));
+    assertNull(versions.maxSatisfying("3.x"));
+    assertNull(versions.maxSatisfying("1.8.1"));
+    assertNull(versions.maxSatisfying("http://asdf.com/asdf.tar.gz"));
+
+    assertEquals("1.7.2", Semver.maxSatisfying(Semver.create("1.7.x"), TAGS));
+  }
+
+  @Test
+  public void sameAsLinearScan() {
+    String[] expressions = {"*", "1.8.x", "1.x", "~1.8.0", "~1.8", "~1.9.0", "<1.9.0", ">1.9.0",
+        "<=1.8.2", ">=2.0.0b2", "1.5 - 1.8.0", "1.4.4 || 1.8.x", ">1.5 <1.8.3 || 2.0.0",
+        "1.9.0-rc1", "3.x", "<1.0" };
+    List<String> sorted = new ArrayList<String>(TAGS);
+    Collections.sort(sorted, Semver.DESC);
+    VersionList versions = new VersionList(TAGS);
+    for (String expression : expressions) {
+      String expected = null;
+      for (String candidate : sorted) {
+        if (Semver.create(expression).matches(candidate)) {
+          expected = candidate;
+          break;
+        }
+      }
+      assertEquals(expression, expected, versions.maxSatisfying(expression));
+    }
+  }
+
+  @Test
+  public void emptyList() {
+    VersionList versions = new VersionList(Collections.<String> emptyList());
+    assertNull(versions.first());
+    assertNull(versions.maxSatisfying("*"));
+  }
+}
@@ -0,0 +1,102 @@
+package com.github.jknack.semver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class VersionSetTest {
+
+  static final String[] PROBES = {"0", "0.5", "1", "1.0.0-beta", "1.0.0", "1.0.5", "1.2",
+      "1.2.3", "1.2.9", "1.3", "1.9", "2.0", "2.1.2", "2.3.0", "2.3.1", "2.4.4", "2.4.5",
+      "2.5.2", "2.9", "3", "10.0" };
+
+  @Test
+  public void compile() {
+    assertEquals("[1.2.3, 1.2.3]", versions("1.2.3").toString());
+    assertEquals("[1.2.3, 1.3.0)", versions("~1.2.3").toString());
+    assertEquals("[1.2, 2.0.0)", versions("~1.2").toString());
+    assertEquals("[1.x.x, 2.0.0)", versions("1.x.x").toString());
+    assertEquals("[1.0.0, 2.0]", versions("1.0.0 - 2.0").toString());
+    assertEquals("(-inf, 1.0.0) || [2.3.1, 2.4.5) || [2.5.2, 3.0.0)",
+        versions("<1.0.0 || >=2.3.1 <2.4.5 || >=2.5.2 <3.0.0").toString());
+    assertEquals("(-inf, +inf)", versions("*").toString());
+    assertEquals("[1.0, 3.0.0)", versions("~1.0 || ~2.0").toString());
+    assertEquals("{}", versions(">2.0 <1.0").toString());
+
+    assertNull(Semver.create("http://asdf.com/asdf.tar.gz").toVersionSet());
+    assertNull(Semver.LATEST.toVersionSet());
+  }
+
+  @Test
+  public void sameAsCompareTo() {
+    String[] ranges = {"~1.2.3", "~1.2", "~1", "1.x", "1.2.x", "1.0.0 - 2.0", "1.0 2.0" };
+    for (String range : ranges) {
+      Semver expr = Semver.create(range);
+      VersionSet versions = expr.toVersionSet();
+      for (String probe : PROBES) {
+        assertEquals(range + " vs " + probe, expr.compareTo(Semver.create(probe)) == 0,
+            versions.contains(probe));
+      }
+    }
+  }
+
+  @Test
+  public void union() {
+    VersionSet versions = versions("1.0.0 - 1.5").union(versions(">1.5 <2"));
+    assertEquals("[1.0.0, 2)", versions.toString());
+
+    versions = versions("<1.5").union(versions(">1.5"));
+    assertEquals("(-inf, 1.5) || (1.5, +inf)", versions.toString());
+    assertFalse(versions.contains("1.5"));
+    assertTrue(versions.contains("1.5.1"));
+
+    assertEquals("(-inf, +inf)", versions.union(versions("1.5")).toString());
+  }
+
+  @Test
+  public void intersect() {
+    assertEquals("[1.2.3, 1.3.0)", versions("~1.2.3").intersect(versions("1.x")).toString());
+    assertEquals("[1.5, 1.9]", versions("1.x").intersect(versions(">=1.5 <=1.9")).toString());
+    assertTrue(versions("~1.2").intersect(versions("~2.0")).isEmpty());
+    assertEquals("[1.2.0, 1.2.0] || [2.0, 2.1]",
+        versions("1.2.0 || ~2.0").intersect(versions("~1.2 || 2.0 - 2.1")).toString());
+    assertTrue(versions(">=1.0").intersect(VersionSet.EMPTY).isEmpty());
+  }
+
+  @Test
+  public void contains() {
+    VersionSet versions = versions("<1.0.0 || >=2.3.1 <2.4.5 || >=2.5.2 <3.0.0");
+    assertTrue(versions.contains("0.5"));
+    assertFalse(versions.contains("1.0.5"));
+    assertTrue(versions.contains("2.3.1"));
+    assertTrue(versions.contains("2.4.4"));
+    assertFalse(versions.contains("2.4.5"));
+    assertTrue(versions.contains("2.9"));
+    assertFalse(versions.contains("3"));
+    assertFalse(versions.contains("*"));
+  }
+
+  @Test
+  public void mutatorsClearCompiledSet() {
+    // Semver.create caches expressions, don't mutate them
+    Range range = (Range) RecursiveDescentParser.parse("1.0 - 2.0");
+    assertEquals("[1.0, 2.0]", range.toVersionSet().toString());
+    range.setRight((Version) RecursiveDescentParser.parse("3.0.0"));
+    assertEquals("[1.0, 3.0.0]", range.toVersionSet().toString());
+    range.setLeft((Version) RecursiveDescentParser.parse("2.0.0"));
+    assertEquals("[2.0.0, 3.0.0]", range.toVersionSet().toString());
+
+    Version version = (Version) RecursiveDescentParser.parse("1.2.3");
+    assertTrue(version.toVersionSet().contains("1.2.3"));
+    version.setMinor(3);
+    assertFalse(version.toVersionSet().contains("1.2.3"));
+    assertTrue(version.toVersionSet().contains("1.3.3"));
+  }
+
+  private static VersionSet versions(final String expression) {
+    return Semver.create(expression).toVersionSet();
+  }
+}
@@ -0,0 +1,99 @@
+package com.github.jknack.semver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class VersionTest {
+
+  @Test
+  public void hashCodeIsConsistentWithEquals() {
+    assertEquals(version("1.0"), version("1.0.0"));
+    assertEquals(version("1.0").hashCode(), version("1.0.0").hashCode());
+    assertEquals(version("1.0.0-Beta"), version("1.0.0-beta"));
+    assertEquals(version("1.0.0-Beta").hashCode(), version("1.0.0-beta").hashCode());
+
+    Set<Version> versions = new HashSet<Version>();
+    versions.add(version("1"));
+    versions.add(version("1.0"));
+    versions.add(version("1.0.0"));
+    assertEquals(1, versions.size());
+  }
+
+  @Test
+  public void order() {
+    assertTrue(version("1.0.0").compareTo(version("1.0.0-beta")) > 0);
+    assertTrue(version("1.0.0-alpha").compareTo(version("1.0.0-beta")) < 0);
+    assertTrue(version("1.0.0-rc.10.abcdef").compareTo(version("1.0.0-rc.10.abcdeg")) < 0);
+    assertTrue(version("1.0.0-7").compareTo(version("1.0.0-7-beta")) > 0);
+    assertTrue(version("0.9.9").compareTo(version("1.0")) < 0);
+    assertTrue(version("65535.0").compareTo(version("65536.0")) < 0);
+    assertTrue(version("20121201.0").compareTo(version("20121130.5")) > 0);
+    assertTrue(version("2.9999.9999").compareTo(version("3")) < 0);
+    assertFalse(version("1.2.3").equals(version("1.2.3-1")));
+  }
+
+  @Test
+  public void sameOrderAsQualifiers() {
+    int[] numbers = {0, 1, 2, 9, 10, 65535, 65536, 20121201 };
+    String[] tags = {null, "alpha", "Alpha", "beta", "rc", "rc1", "rc.10", "rc.10.abcdef",
+        "rc.10.abcdeg", "-beta", "a", "~", "~a", "\u00e9", "\u00c9a", "\u00e9b" };
+    List<Version> versions = new ArrayList<Version>();
+    for (int major : numbers) {
+      for (int minor : numbers) {
+        for (String tag : tags) {
+          Version version = new Version(major + "." + minor, major, minor, minor % 3);
+          version.setBuild(major % 2);
+          version.setTag(tag);
+          versions.add(version);
+        }
+      }
+    }
+    for (Version v1 : versions) {
+      for (Version v2 : versions) {
+        assertEquals(v1 + " vs " + v2, Integer.signum(reference(v1, v2)),
+            Integer.signum(v1.compareTo(v2)));
+        if (v1.equals(v2)) {
+          assertEquals(v1.hashCode(), v2.hashCode());
+        }
+      }
+    }
+  }
+
+  private static int reference(final Version v1, final Version v2) {
+    int result = v1.getMajor() - v2.getMajor();
+    if (result != 0) {
+      return result;
+    }
+    result = v1.getMinor() - v2.getMinor();
+    if (result != 0) {
+      return result;
+    }
+    result = v1.getIncremental() - v2.getIncremental();
+    if (result != 0) {
+      return result;
+    }
+    result = v1.getBuild() - v2.getBuild();
+    if (result != 0) {
+      return result;
+    }
+    if (v1.getTag() == null) {
+      return v2.getTag() == null ? 0 : 1;
+    }
+    if (v2.getTag() == null) {
+      return -1;
+    }
+    return v1.getTag().compareToIgnoreCase(v2.getTag());
+  }
+
+  private static Version version(final String text) {
+    return (Version) Semver.create(text);
+  }
+}